@@ -0,0 +1,85 @@
+package com.tianlei.mybatis.action;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.xml.DomService;
+import com.tianlei.mybatis.analysis.IndexAdvisor;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.ui.MybatisToolWindowFactory;
+import com.tianlei.mybatis.ui.ReportPanel;
+import com.tianlei.mybatis.util.ParallelReadUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects how every statement of the project accesses its tables in the background, one read action per mapper
+ * file whose result is cached with the file, then ranks index suggestions and redundant indexes of the data sources
+ * in the MyBatis tool window.
+ */
+public class AdviseIndexesAction extends AnAction implements DumbAware {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(null != e.getProject());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (null == project) {
+            return;
+        }
+        ReportPanel panel = MybatisToolWindowFactory.openReport(project, "Indexes");
+        new Task.Backgroundable(project, "Advising indexes for MyBatis statements", true) {
+
+            private final Queue<IndexAdvisor.Access> accesses = new ConcurrentLinkedQueue<>();
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                List<VirtualFile> mappers = Lists.newArrayList(ReadAction.nonBlocking(() ->
+                                DomService.getInstance().getDomFileCandidates(Mapper.class, GlobalSearchScope.projectScope(project)))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .executeSynchronously());
+                panel.setStatus("Collecting table accesses of " + mappers.size() + " mapper files...");
+                ParallelReadUtils.process(project, indicator, "MyBatis Index Advisor", mappers,
+                        file -> IndexAdvisor.collect(project, file),
+                        accesses::addAll);
+                indicator.setText("Ranking index suggestions");
+                panel.addItems(ReadAction.nonBlocking(() -> IndexAdvisor.advise(project, accesses))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .executeSynchronously());
+            }
+
+            @Override
+            public void onSuccess() {
+                panel.setStatus("{count} suggestion(s) from " + accesses.size() + " table accesses");
+            }
+
+            @Override
+            public void onCancel() {
+                panel.setStatus("Cancelled");
+            }
+        }.queue();
+    }
+
+}
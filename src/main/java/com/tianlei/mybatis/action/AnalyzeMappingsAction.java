@@ -0,0 +1,78 @@
+package com.tianlei.mybatis.action;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.xml.DomService;
+import com.tianlei.mybatis.analysis.MappingConsistencyChecker;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.ui.MybatisToolWindowFactory;
+import com.tianlei.mybatis.ui.ReportPanel;
+import com.tianlei.mybatis.util.ParallelReadUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Checks every mapper xml of the project against its dao interface in the background, one read action per mapper
+ * file, and streams the findings into the MyBatis tool window.
+ */
+public class AnalyzeMappingsAction extends AnAction implements DumbAware {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(null != e.getProject());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (null == project) {
+            return;
+        }
+        ReportPanel panel = MybatisToolWindowFactory.openReport(project, "Mappings");
+        new Task.Backgroundable(project, "Analyzing MyBatis mappings", true) {
+
+            private int files;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                List<VirtualFile> mappers = Lists.newArrayList(ReadAction.nonBlocking(() ->
+                                DomService.getInstance().getDomFileCandidates(Mapper.class, GlobalSearchScope.projectScope(project)))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .executeSynchronously());
+                files = mappers.size();
+                panel.setStatus("Analyzing " + files + " mapper files...");
+                ParallelReadUtils.process(project, indicator, "MyBatis Mapping Analysis", mappers,
+                        file -> MappingConsistencyChecker.check(project, file),
+                        panel::addItems);
+            }
+
+            @Override
+            public void onSuccess() {
+                panel.setStatus("{count} problem(s) found in " + files + " mapper files");
+            }
+
+            @Override
+            public void onCancel() {
+                panel.setStatus("Cancelled, {count} problem(s) found so far");
+            }
+        }.queue();
+    }
+
+}
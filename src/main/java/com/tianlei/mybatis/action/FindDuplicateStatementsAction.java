@@ -0,0 +1,155 @@
+package com.tianlei.mybatis.action;
+
+import com.google.common.collect.Lists;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomService;
+import com.tianlei.mybatis.analysis.DuplicateStatementDetector;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.refactoring.StatementConsolidator;
+import com.tianlei.mybatis.ui.MybatisToolWindowFactory;
+import com.tianlei.mybatis.ui.ReportItem;
+import com.tianlei.mybatis.ui.ReportPanel;
+import com.tianlei.mybatis.util.MybatisConstants;
+import com.tianlei.mybatis.util.ParallelReadUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups the statements and result maps of the project by fingerprint and lists every group with more than one
+ * member in the MyBatis tool window. A group of statements can be consolidated into one {@code <sql>} fragment.
+ */
+public class FindDuplicateStatementsAction extends AnAction {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(null != e.getProject());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (null == project) {
+            return;
+        }
+        ReportPanel panel = MybatisToolWindowFactory.openReport(project, "Duplicate Statements");
+        panel.setToolbarActions(DumbAwareAction.create("Extract Selected Group into <sql>", AllIcons.Actions.RefactoringBulb,
+                event -> consolidate(project, panel)));
+        Map<String, List<ReportItem>> groups = new ConcurrentHashMap<>();
+        new Task.Backgroundable(project, "Finding duplicate MyBatis statements", true) {
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                List<VirtualFile> mappers = Lists.newArrayList(ReadAction.nonBlocking(() ->
+                                DomService.getInstance().getDomFileCandidates(Mapper.class, GlobalSearchScope.projectScope(project)))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .executeSynchronously());
+                panel.setStatus("Hashing " + mappers.size() + " mapper files...");
+                ParallelReadUtils.process(project, indicator, "MyBatis Duplicate Statements", mappers,
+                        file -> collect(project, file),
+                        entries -> {
+                            for (Pair<String, ReportItem> entry : entries) {
+                                groups.computeIfAbsent(entry.first, key -> Collections.synchronizedList(Lists.newArrayList())).add(entry.second);
+                            }
+                        });
+            }
+
+            @Override
+            public void onSuccess() {
+                List<List<ReportItem>> duplicates = Lists.newArrayList();
+                for (List<ReportItem> group : groups.values()) {
+                    if (group.size() > 1) {
+                        duplicates.add(group);
+                    }
+                }
+                duplicates.sort(Comparator.comparingInt((List<ReportItem> group) -> group.size()).reversed());
+                for (int i = 0; i < duplicates.size(); i++) {
+                    List<ReportItem> group = duplicates.get(i);
+                    String category = "#" + (i + 1) + " " + group.get(0).getCategory() + " x" + group.size();
+                    List<ReportItem> items = Lists.newArrayList();
+                    for (ReportItem item : group) {
+                        items.add(item.inCategory(category));
+                    }
+                    panel.addItems(items);
+                }
+                panel.setStatus(duplicates.size() + " group(s) of equivalent statements or result maps");
+            }
+
+            @Override
+            public void onCancel() {
+                panel.setStatus("Cancelled");
+            }
+        }.queue();
+    }
+
+    private static List<Pair<String, ReportItem>> collect(Project project, VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (!(psiFile instanceof XmlFile)) {
+            return Collections.emptyList();
+        }
+        XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+        String namespace = null == rootTag ? null : rootTag.getAttributeValue("namespace");
+        List<Pair<String, ReportItem>> result = Lists.newArrayList();
+        for (Pair<XmlTag, String> fingerprint : DuplicateStatementDetector.getFingerprints((XmlFile) psiFile)) {
+            XmlTag tag = fingerprint.first;
+            String category = DuplicateStatementDetector.RESULT_MAP.equals(DuplicateStatementDetector.getKind(tag))
+                    ? "equivalent <resultMap>" : "identical <" + tag.getName() + ">";
+            String message = namespace + MybatisConstants.DOT_SEPARATOR + tag.getAttributeValue("id");
+            result.add(Pair.create(fingerprint.second, ReportItem.create(category, message, tag)));
+        }
+        return result;
+    }
+
+    private static void consolidate(Project project, ReportPanel panel) {
+        List<XmlTag> statements = Lists.newArrayList();
+        for (ReportItem item : panel.getSelectedGroup()) {
+            PsiElement element = item.getElement();
+            if (element instanceof XmlTag && element.isValid()) {
+                statements.add((XmlTag) element);
+            }
+        }
+        if (statements.size() < 2) {
+            Messages.showInfoMessage(project, "Select a group with at least two statements", "Extract into <sql>");
+            return;
+        }
+        if (DuplicateStatementDetector.RESULT_MAP.equals(DuplicateStatementDetector.getKind(statements.get(0)))) {
+            Messages.showInfoMessage(project, "Result maps can not be extracted into <sql>", "Extract into <sql>");
+            return;
+        }
+        if (!StatementConsolidator.canExtract(statements)) {
+            Messages.showInfoMessage(project, "The statements of the group are equivalent but not written the same, "
+                    + "only statements with identical bodies can share one <sql>", "Extract into <sql>");
+            return;
+        }
+        StatementConsolidator.extractFragment(project, statements);
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.tianlei.mybatis.action;
+
+import com.google.common.collect.Lists;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.refactoring.safeDelete.SafeDeleteHandler;
+import com.intellij.util.xml.DomService;
+import com.tianlei.mybatis.analysis.UnusedStatementDetector;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.ui.MybatisToolWindowFactory;
+import com.tianlei.mybatis.ui.ReportItem;
+import com.tianlei.mybatis.ui.ReportPanel;
+import com.tianlei.mybatis.util.ParallelReadUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lists the unused statements, sql fragments and result maps of the project in the MyBatis tool window, from
+ * where they can be safe deleted in one go.
+ */
+public class FindUnusedStatementsAction extends AnAction {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(null != e.getProject());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (null == project) {
+            return;
+        }
+        ReportPanel panel = MybatisToolWindowFactory.openReport(project, "Unused Statements");
+        panel.setToolbarActions(DumbAwareAction.create("Safe Delete All", AllIcons.Actions.GC, event -> safeDelete(project, panel)));
+        new Task.Backgroundable(project, "Finding unused MyBatis statements", true) {
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                List<VirtualFile> mappers = Lists.newArrayList(ReadAction.nonBlocking(() ->
+                                DomService.getInstance().getDomFileCandidates(Mapper.class, GlobalSearchScope.projectScope(project)))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .executeSynchronously());
+                panel.setStatus("Searching " + mappers.size() + " mapper files...");
+                ParallelReadUtils.process(project, indicator, "MyBatis Unused Statements", mappers,
+                        file -> collect(project, file),
+                        panel::addItems);
+            }
+
+            @Override
+            public void onSuccess() {
+                panel.setStatus("{count} unused element(s)");
+            }
+
+            @Override
+            public void onCancel() {
+                panel.setStatus("Cancelled, {count} unused element(s) found so far");
+            }
+        }.queue();
+    }
+
+    private static List<ReportItem> collect(Project project, VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (!(psiFile instanceof XmlFile)) {
+            return Collections.emptyList();
+        }
+        List<ReportItem> result = Lists.newArrayList();
+        for (XmlTag tag : UnusedStatementDetector.findUnusedTags((XmlFile) psiFile)) {
+            result.add(ReportItem.create(UnusedStatementDetector.getCategory(tag), UnusedStatementDetector.getDescription(tag), tag));
+        }
+        return result;
+    }
+
+    private static void safeDelete(Project project, ReportPanel panel) {
+        List<PsiElement> elements = Lists.newArrayList();
+        for (ReportItem item : panel.getItems()) {
+            PsiElement element = item.getElement();
+            if (null != element && element.isValid()) {
+                elements.add(element);
+            }
+        }
+        if (!elements.isEmpty()) {
+            SafeDeleteHandler.invoke(project, elements.toArray(PsiElement.EMPTY_ARRAY), true);
+        }
+    }
+
+}
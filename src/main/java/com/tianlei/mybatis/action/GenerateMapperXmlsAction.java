@@ -0,0 +1,236 @@
+package com.tianlei.mybatis.action;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.intellij.ide.fileTemplates.FileTemplate;
+import com.intellij.ide.fileTemplates.FileTemplateManager;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PackageScope;
+import com.tianlei.mybatis.annotation.Annotation;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
+import com.tianlei.mybatis.locator.MapperLocator;
+import com.tianlei.mybatis.template.MybatisFileTemplateDescriptorFactory;
+import com.tianlei.mybatis.ui.UiComponentFacade;
+import com.tianlei.mybatis.util.JavaUtils;
+import com.tianlei.mybatis.util.MapperUtils;
+import com.tianlei.mybatis.util.ParallelReadUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Creates the mapper xml skeletons of every dao interface without one in the selected package or module. Only
+ * interfaces a {@link com.tianlei.mybatis.locator.LocateStrategy} takes for a mapper count as dao interfaces.
+ * The interfaces are inspected in parallel read actions and all files are created in one write command. Interfaces
+ * sharing a simple name get files named after their qualified name, so none of them is lost.
+ */
+public class GenerateMapperXmlsAction extends AnAction {
+
+    private static final int BATCH_SIZE = 50;
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(null != e.getProject() && null != getScope(e));
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        GlobalSearchScope scope = getScope(e);
+        if (null == project || null == scope) {
+            return;
+        }
+        VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+        PsiDirectory first = Iterables.getFirst(MapperUtils.findMapperDirectories(project), null);
+        VirtualFile toSelect = null == first ? baseDir : first.getVirtualFile();
+        VirtualFile target = UiComponentFacade.getInstance(project).showSingleFolderSelectionDialog("Select target folder", toSelect, baseDir);
+        if (null == target) {
+            return;
+        }
+        new GenerateTask(project, scope, target).queue();
+    }
+
+    @Nullable
+    private GlobalSearchScope getScope(@NotNull AnActionEvent e) {
+        PsiElement element = e.getData(CommonDataKeys.PSI_ELEMENT);
+        if (element instanceof PsiDirectory) {
+            element = JavaDirectoryService.getInstance().getPackage((PsiDirectory) element);
+        }
+        if (element instanceof PsiPackage) {
+            return PackageScope.packageScope((PsiPackage) element, true);
+        }
+        Module module = e.getData(LangDataKeys.MODULE_CONTEXT);
+        return null == module ? null : module.getModuleScope(false);
+    }
+
+    private static class Skeleton {
+
+        private final String name;
+
+        private final String qualifiedName;
+
+        private final String text;
+
+        private Skeleton(String name, String qualifiedName, String text) {
+            this.name = name;
+            this.qualifiedName = qualifiedName;
+            this.text = text;
+        }
+    }
+
+    private static class GenerateTask extends Task.Backgroundable {
+
+        private final GlobalSearchScope scope;
+
+        private final VirtualFile target;
+
+        private final List<Skeleton> skeletons = Lists.newArrayList();
+
+        private int created;
+
+        private GenerateTask(@NotNull Project project, @NotNull GlobalSearchScope scope, @NotNull VirtualFile target) {
+            super(project, "Preparing mapper xml skeletons", true);
+            this.scope = scope;
+            this.target = target;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            Project project = getProject();
+            List<VirtualFile> files = Lists.newArrayList(ReadAction.compute(() -> FileTypeIndex.getFiles(JavaFileType.INSTANCE, scope)));
+            FileTemplate template = FileTemplateManager.getDefaultInstance().getJ2eeTemplate(MybatisFileTemplateDescriptorFactory.MYBATIS_MAPPER_XML_TEMPLATE);
+            Properties defaults = FileTemplateManager.getInstance(project).getDefaultProperties();
+            List<List<VirtualFile>> batches = Lists.partition(files, BATCH_SIZE);
+            ParallelReadUtils.process(project, indicator, "MyBatis Mapper Skeletons", batches,
+                    batch -> prepare(project, batch, template, defaults),
+                    result -> {
+                        synchronized (skeletons) {
+                            skeletons.addAll(result);
+                        }
+                    });
+        }
+
+        @NotNull
+        private static List<Skeleton> prepare(@NotNull Project project,
+                                              @NotNull Collection<VirtualFile> files,
+                                              @NotNull FileTemplate template,
+                                              @NotNull Properties defaults) {
+            List<Skeleton> result = Lists.newArrayList();
+            PsiManager psiManager = PsiManager.getInstance(project);
+            for (VirtualFile file : files) {
+                PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+                if (!(psiFile instanceof PsiJavaFile)) {
+                    continue;
+                }
+                for (PsiClass clazz : ((PsiJavaFile) psiFile).getClasses()) {
+                    if (isCandidate(project, clazz)) {
+                        Properties properties = new Properties();
+                        properties.putAll(defaults);
+                        properties.setProperty("NAMESPACE", clazz.getQualifiedName());
+                        try {
+                            result.add(new Skeleton(clazz.getName(), clazz.getQualifiedName(), template.getText(properties)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static boolean isCandidate(@NotNull Project project, @NotNull PsiClass clazz) {
+            String qualifiedName = clazz.getQualifiedName();
+            if (!clazz.isInterface() || clazz.isAnnotationType() || null == qualifiedName
+                    || !MapperLocator.getInstance(project).process(clazz)) {
+                return false;
+            }
+            boolean hasXmlMethod = false;
+            for (PsiMethod method : clazz.getMethods()) {
+                if (!method.hasModifierProperty(PsiModifier.DEFAULT)
+                        && !method.hasModifierProperty(PsiModifier.STATIC)
+                        && !JavaUtils.isAnyAnnotationPresent(method, Annotation.STATEMENT_SYMMETRIES)) {
+                    hasXmlMethod = true;
+                    break;
+                }
+            }
+            return hasXmlMethod && MapperNamespaceIndex.findMapperFiles(project, qualifiedName).isEmpty();
+        }
+
+        @Override
+        public void onSuccess() {
+            Project project = getProject();
+            Multiset<String> names = HashMultiset.create();
+            for (Skeleton skeleton : skeletons) {
+                names.add(skeleton.name);
+            }
+            if (!skeletons.isEmpty() && target.isValid()) {
+                try {
+                    WriteCommandAction.writeCommandAction(project).withName("Generate Mapper Xml Skeletons").run(() -> {
+                        for (Skeleton skeleton : skeletons) {
+                            String fileName = (1 < names.count(skeleton.name) ? skeleton.qualifiedName : skeleton.name) + ".xml";
+                            if (null == target.findChild(fileName)) {
+                                VirtualFile file = target.createChildData(this, fileName);
+                                VfsUtil.saveText(file, skeleton.text);
+                                created++;
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    showNotification(project, "Failed: " + e.getMessage(), NotificationType.ERROR);
+                    return;
+                }
+            }
+            String content = created + " mapper xml skeleton(s) generated";
+            if (created < skeletons.size()) {
+                content += ", " + (skeletons.size() - created) + " skipped because the file already exists";
+            }
+            int clashing = 0;
+            for (Skeleton skeleton : skeletons) {
+                clashing += 1 < names.count(skeleton.name) ? 1 : 0;
+            }
+            if (0 < clashing) {
+                content += ", " + clashing + " named after the qualified interface name because their simple names clash";
+            }
+            showNotification(project, content, NotificationType.INFORMATION);
+        }
+
+        private static void showNotification(@NotNull Project project, @NotNull String content, @NotNull NotificationType type) {
+            NotificationGroupManager.getInstance().getNotificationGroup("MyBatis")
+                    .createNotification(content, type)
+                    .notify(project);
+        }
+    }
+
+}
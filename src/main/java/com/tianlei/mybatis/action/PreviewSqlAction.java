@@ -0,0 +1,56 @@
+package com.tianlei.mybatis.action;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlTag;
+import com.tianlei.mybatis.analysis.DynamicSqlRenderer;
+import com.tianlei.mybatis.ui.MybatisToolWindowFactory;
+import com.tianlei.mybatis.ui.SqlPreviewPanel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Opens a preview of the statement at the caret in the MyBatis tool window.
+ */
+public class PreviewSqlAction extends AnAction {
+
+    @NotNull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(null != findTag(e));
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        XmlTag tag = findTag(e);
+        if (null == project || null == tag) {
+            return;
+        }
+        XmlTag mapper = tag.getParentTag();
+        String namespace = null == mapper ? null : mapper.getAttributeValue("namespace");
+        String title = "SQL: " + (null == namespace ? "" : namespace + ".") + tag.getAttributeValue("id");
+        MybatisToolWindowFactory.openTab(project, title, new SqlPreviewPanel(tag));
+    }
+
+    @Nullable
+    private static XmlTag findTag(@NotNull AnActionEvent e) {
+        Editor editor = e.getData(CommonDataKeys.EDITOR);
+        PsiFile file = e.getData(CommonDataKeys.PSI_FILE);
+        if (null == editor || null == file) {
+            return null;
+        }
+        return DynamicSqlRenderer.findRenderableTag(file.findElementAt(editor.getCaretModel().getOffset()));
+    }
+
+}
@@ -1,11 +1,17 @@
 package com.tianlei.mybatis.alias;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -13,14 +19,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
-public class AliasFacade {
+public class AliasFacade implements Disposable {
 
     private Project project;
 
     private JavaPsiFacade javaPsiFacade;
 
-    private List<AliasResolver> resolvers;
+    /**
+     * Immutable snapshots, replaced on every registration so highlighting threads never see a list being mutated.
+     */
+    private volatile List<CachedResolver> builtinResolvers = ImmutableList.of();
+
+    private volatile List<CachedResolver> extensionResolvers = ImmutableList.of();
 
     public static final AliasFacade getInstance(@NotNull Project project) {
         return project.getService(AliasFacade.class);
@@ -28,9 +40,10 @@ public class AliasFacade {
 
     public AliasFacade(Project project) {
         this.project = project;
-        this.resolvers = Lists.newArrayList();
         this.javaPsiFacade = JavaPsiFacade.getInstance(project);
         initResolvers();
+        loadExtensionResolvers();
+        AliasResolverProvider.EP_NAME.addChangeListener(this::loadExtensionResolvers, this);
     }
 
     private void initResolvers() {
@@ -45,14 +58,32 @@ public class AliasFacade {
         this.registerResolver(AliasResolverFactory.createInnerAliasResolver(project));
     }
 
+    private void loadExtensionResolvers() {
+        List<CachedResolver> result = Lists.newArrayList();
+        for (AliasResolverProvider provider : AliasResolverProvider.EP_NAME.getExtensionList()) {
+            result.add(new CachedResolver(provider.createResolver(project)));
+        }
+        this.extensionResolvers = ImmutableList.copyOf(result);
+    }
+
+    @NotNull
+    private List<CachedResolver> getResolvers() {
+        List<CachedResolver> extensions = extensionResolvers;
+        if (extensions.isEmpty()) {
+            return builtinResolvers;
+        }
+        return ImmutableList.<CachedResolver>builder().addAll(builtinResolvers).addAll(extensions).build();
+    }
+
     @NotNull
     public Optional<PsiClass> findPsiClass(@Nullable PsiElement element, @NotNull String shortName) {
         PsiClass clazz = javaPsiFacade.findClass(shortName, GlobalSearchScope.allScope(project));
         if (null != clazz) {
             return Optional.of(clazz);
         }
-        for (AliasResolver resolver : resolvers) {
-            for (AliasDesc desc : resolver.getClassAliasDescriptions(element)) {
+        for (CachedResolver resolver : getResolvers()) {
+            for (AliasDesc desc : resolver.getAliasDescs()) {
+                ProgressManager.checkCanceled();
                 if (shortName.equalsIgnoreCase(desc.getAlias())) {
                     return Optional.of(desc.getClazz());
                 }
@@ -64,8 +95,8 @@ public class AliasFacade {
     @NotNull
     public Collection<AliasDesc> getAliasDescs(@Nullable PsiElement element) {
         ArrayList<AliasDesc> result = Lists.newArrayList();
-        for (AliasResolver resolver : resolvers) {
-            result.addAll(resolver.getClassAliasDescriptions(element));
+        for (CachedResolver resolver : getResolvers()) {
+            result.addAll(resolver.getAliasDescs());
         }
         return result;
     }
@@ -74,8 +105,9 @@ public class AliasFacade {
         if (clazz == null) {
             return Optional.empty();
         }
-        for (AliasResolver resolver : resolvers) {
-            for (AliasDesc desc : resolver.getClassAliasDescriptions(clazz)) {
+        for (CachedResolver resolver : getResolvers()) {
+            for (AliasDesc desc : resolver.getAliasDescs()) {
+                ProgressManager.checkCanceled();
                 if (clazz.equals(desc.getClazz())) {
                     return Optional.of(desc);
                 }
@@ -84,8 +116,31 @@ public class AliasFacade {
         return Optional.empty();
     }
 
-    public void registerResolver(@NotNull AliasResolver resolver) {
-        this.resolvers.add(resolver);
+    public synchronized void registerResolver(@NotNull AliasResolver resolver) {
+        this.builtinResolvers = ImmutableList.<CachedResolver>builder()
+                .addAll(builtinResolvers)
+                .add(new CachedResolver(resolver))
+                .build();
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private class CachedResolver {
+
+        private final CachedValue<Set<AliasDesc>> aliasDescs;
+
+        private CachedResolver(@NotNull AliasResolver resolver) {
+            this.aliasDescs = CachedValuesManager.getManager(project).createCachedValue(
+                    () -> CachedValueProvider.Result.create(resolver.getClassAliasDescriptions(null), resolver.getDependencies()),
+                    false);
+        }
+
+        @NotNull
+        private Set<AliasDesc> getAliasDescs() {
+            return aliasDescs.getValue();
+        }
     }
 
 }
@@ -3,6 +3,7 @@ package com.tianlei.mybatis.alias;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.tianlei.mybatis.util.JavaUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -30,9 +31,21 @@ public abstract class AliasResolver {
         return Optional.of(desc);
     }
 
+    /**
+     * The result is cached by {@link AliasFacade} until one of {@link #getDependencies()} changes,
+     * so it must not depend on the given element.
+     */
     @NotNull
     public abstract Set<AliasDesc> getClassAliasDescriptions(@Nullable PsiElement element);
 
+    /**
+     * @return the modification trackers (or other cached value dependencies) the aliases of this resolver depend on
+     */
+    @NotNull
+    public Object[] getDependencies() {
+        return new Object[]{PsiModificationTracker.getInstance(project)};
+    }
+
     public Project getProject() {
         return project;
     }
@@ -0,0 +1,22 @@
+package com.tianlei.mybatis.alias;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Contributes a project level {@link AliasResolver} through the {@code aliasResolver} extension point, e.g.
+ * <pre>
+ * &lt;extensions defaultExtensionNs="com.tianlei.plugin.mybatis"&gt;
+ *     &lt;aliasResolver implementation="com.example.MyAliasResolverProvider"/&gt;
+ * &lt;/extensions&gt;
+ * </pre>
+ */
+public interface AliasResolverProvider {
+
+    ExtensionPointName<AliasResolverProvider> EP_NAME = ExtensionPointName.create("com.tianlei.plugin.mybatis.aliasResolver");
+
+    @NotNull
+    AliasResolver createResolver(@NotNull Project project);
+
+}
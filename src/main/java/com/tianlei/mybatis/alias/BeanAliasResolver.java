@@ -3,6 +3,7 @@ package com.tianlei.mybatis.alias;
 import com.google.common.collect.Sets;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
@@ -38,6 +39,7 @@ public class BeanAliasResolver extends PackageAliasResolver {
         Set<String> res = Sets.newHashSet();
         for (Module module : moduleManager.getModules()) {
             for (CommonSpringModel springModel : springManager.getCombinedModel(module).getRelatedModels()) {
+                ProgressManager.checkCanceled();
                 addPackages(res, springModel);
             }
         }
@@ -51,6 +53,7 @@ public class BeanAliasResolver extends PackageAliasResolver {
             PsiClass sqlSessionFactoryClazz = (PsiClass) sqlSessionFactoryClazzOpt.get();
 
             for (Object domBean : domBeans) {
+                ProgressManager.checkCanceled();
                 SpringBeanPointer pointer = (SpringBeanPointer) domBean;
                 PsiClass beanClass = pointer.getBeanClass();
                 if (beanClass != null && beanClass.equals(sqlSessionFactoryClazz)) {
@@ -2,6 +2,7 @@ package com.tianlei.mybatis.alias;
 
 import com.google.common.collect.ImmutableSet;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.psi.PsiElement;
 import com.tianlei.mybatis.util.JavaUtils;
 import org.jetbrains.annotations.NotNull;
@@ -42,4 +43,10 @@ public class InnerAliasResolver extends AliasResolver {
         return innerAliasDescs;
     }
 
+    @NotNull
+    @Override
+    public Object[] getDependencies() {
+        return new Object[]{ModificationTracker.NEVER_CHANGED};
+    }
+
 }
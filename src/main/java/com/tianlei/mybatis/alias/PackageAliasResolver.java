@@ -1,6 +1,7 @@
 package com.tianlei.mybatis.alias;
 
 import com.google.common.collect.Sets;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
@@ -26,6 +27,7 @@ public abstract class PackageAliasResolver extends AliasResolver {
     public Set<AliasDesc> getClassAliasDescriptions(@Nullable PsiElement element) {
         Set<AliasDesc> result = Sets.newHashSet();
         for (String pkgName : getPackages(element)) {
+            ProgressManager.checkCanceled();
             if (null == pkgName) {
                 continue;
             }
@@ -33,6 +35,7 @@ public abstract class PackageAliasResolver extends AliasResolver {
             if (null != pkg) {
                 addAliasDesc(result, pkg);
                 for (PsiPackage tmp : pkg.getSubPackages()) {
+                    ProgressManager.checkCanceled();
                     addAliasDesc(result, tmp);
                 }
             }
@@ -42,6 +45,7 @@ public abstract class PackageAliasResolver extends AliasResolver {
 
     private void addAliasDesc(Set<AliasDesc> result, PsiPackage pkg) {
         for (PsiClass clazz : pkg.getClasses()) {
+            ProgressManager.checkCanceled();
             addAliasDesc(result, clazz, clazz.getName());
         }
     }
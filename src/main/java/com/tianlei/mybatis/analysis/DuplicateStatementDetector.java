@@ -0,0 +1,131 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Pair;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.dom.model.ResultMap;
+import com.tianlei.mybatis.util.MapperUtils;
+import com.tianlei.mybatis.util.MybatisConstants;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fingerprints statements and result maps so equivalent ones can be grouped project-wide by comparing hashes.
+ * A statement fingerprint covers its tag, result mapping and normalized body with includes expanded; a result map
+ * fingerprint covers its type and mappings regardless of their order, case and formatting. References to result maps
+ * and statements are qualified with the namespace, as the same local id means another element in another mapper.
+ */
+public final class DuplicateStatementDetector {
+
+    public static final String STATEMENT = "statement";
+
+    public static final String RESULT_MAP = "resultMap";
+
+    private static final String[] STATEMENT_ATTRIBUTES = {"resultType", "resultMap", "parameterType", "statementType"};
+
+    private static final Set<String> REFERENCE_ATTRIBUTES = ImmutableSet.of("resultMap", "extends", "select");
+
+    private DuplicateStatementDetector() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the tags of the mapper file paired with their fingerprint, cached until the next psi change
+     */
+    @NotNull
+    public static List<Pair<XmlTag, String>> getFingerprints(@NotNull XmlFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(
+                computeFingerprints(file), PsiModificationTracker.getInstance(file.getProject())));
+    }
+
+    private static List<Pair<XmlTag, String>> computeFingerprints(XmlFile file) {
+        DomFileElement<Mapper> fileElement = DomManager.getDomManager(file.getProject()).getFileElement(file, Mapper.class);
+        if (null == fileElement) {
+            return Collections.emptyList();
+        }
+        Mapper mapper = fileElement.getRootElement();
+        String namespace = MapperUtils.getNamespace(mapper);
+        List<Pair<XmlTag, String>> result = Lists.newArrayList();
+        for (IdDomElement element : mapper.getDaoElements()) {
+            ProgressManager.checkCanceled();
+            XmlTag tag = element.getXmlTag();
+            if (null != tag) {
+                String body = SqlTextUtils.normalize(SqlTextUtils.getExpandedBody(tag));
+                if (!body.isEmpty()) {
+                    result.add(Pair.create(tag, SqlTextUtils.hash(STATEMENT + '|' + getStatementHeader(tag, namespace) + '|' + body)));
+                }
+            }
+        }
+        for (ResultMap resultMap : mapper.getResultMaps()) {
+            ProgressManager.checkCanceled();
+            XmlTag tag = resultMap.getXmlTag();
+            if (null != tag && 0 != tag.getSubTags().length) {
+                result.add(Pair.create(tag, SqlTextUtils.hash(RESULT_MAP + '|' + getMappingSignature(tag, namespace, true))));
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    public static String getKind(@NotNull XmlTag tag) {
+        return "resultMap".equals(tag.getName()) ? RESULT_MAP : STATEMENT;
+    }
+
+    private static String getStatementHeader(XmlTag tag, String namespace) {
+        StringBuilder builder = new StringBuilder(tag.getName());
+        for (String name : STATEMENT_ATTRIBUTES) {
+            String value = tag.getAttributeValue(name);
+            builder.append('|').append(null == value ? "" : normalizeValue(name, value, namespace));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Renders the mappings of a result map with the children sorted, the id of the root result map is left out.
+     */
+    private static String getMappingSignature(XmlTag tag, String namespace, boolean root) {
+        List<String> attributes = Lists.newArrayList();
+        for (XmlAttribute attribute : tag.getAttributes()) {
+            if (!(root && "id".equals(attribute.getName())) && null != attribute.getValue()) {
+                attributes.add(attribute.getName() + '=' + normalizeValue(attribute.getName(), attribute.getValue(), namespace));
+            }
+        }
+        Collections.sort(attributes);
+        List<String> children = Lists.newArrayList();
+        for (XmlTag subTag : tag.getSubTags()) {
+            children.add(getMappingSignature(subTag, namespace, false));
+        }
+        Collections.sort(children);
+        return tag.getName() + '[' + Joiner.on(',').join(attributes) + ']' + '{' + Joiner.on(';').join(children) + '}';
+    }
+
+    private static String normalizeValue(String name, String value, String namespace) {
+        String trimmed = value.trim();
+        if (REFERENCE_ATTRIBUTES.contains(name)) {
+            List<String> ids = Lists.newArrayList();
+            for (String id : trimmed.split(",")) {
+                String local = id.trim();
+                ids.add(local.contains(MybatisConstants.DOT_SEPARATOR) ? local : namespace + MybatisConstants.DOT_SEPARATOR + local);
+            }
+            return Joiner.on(',').join(ids);
+        }
+        return "column".equals(name) || "jdbcType".equals(name) ? trimmed.toLowerCase() : trimmed;
+    }
+
+}
@@ -0,0 +1,347 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlTagChild;
+import com.intellij.psi.xml.XmlText;
+import com.tianlei.mybatis.service.IncludeGraph;
+import com.tianlei.mybatis.util.DomUtils;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the sql a statement sends, either statically with includes and include properties expanded and dynamic
+ * tags kept, or by evaluating the dynamic tags against a sample parameter given as json.
+ */
+public final class DynamicSqlRenderer {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("([#$])\\{([^}]*)}");
+
+    private static final Splitter OVERRIDES_SPLITTER = Splitter.on('|').omitEmptyStrings();
+
+    private static final int MAX_INCLUDE_DEPTH = 32;
+
+    private static final Set<String> RENDERABLE_TAGS = ImmutableSet.of("select", "insert", "update", "delete", "sql");
+
+    private final IncludeGraph graph;
+
+    private final List<String> parameters = Lists.newArrayList();
+
+    private DynamicSqlRenderer(IncludeGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the statement or {@code <sql>} fragment of a mapper file the element is in, if any
+     */
+    @Nullable
+    public static XmlTag findRenderableTag(@Nullable PsiElement element) {
+        if (null == element || !DomUtils.isMybatisFile(element.getContainingFile())) {
+            return null;
+        }
+        XmlTag tag = element instanceof XmlTag ? (XmlTag) element : PsiTreeUtil.getParentOfType(element, XmlTag.class);
+        while (null != tag) {
+            XmlTag parent = tag.getParentTag();
+            if (null != parent && null == parent.getParentTag()) {
+                return RENDERABLE_TAGS.contains(tag.getName()) ? tag : null;
+            }
+            tag = parent;
+        }
+        return null;
+    }
+
+    /**
+     * @return the statement body with includes expanded from the memoized fragments, dynamic tags are kept
+     */
+    @NotNull
+    public static String renderStatic(@NotNull XmlTag statement) {
+        return tidy(SqlTextUtils.getExpandedBody(statement));
+    }
+
+    /**
+     * Evaluates the statement against the parameter, placeholders are rendered as {@code ?} and their values, in
+     * order, are appended as a comment.
+     *
+     * @throws IllegalArgumentException if the json or an expression can not be evaluated
+     */
+    @NotNull
+    public static String render(@NotNull XmlTag statement, @NotNull String parameterJson) {
+        Object parameter = StringUtil.isEmptyOrSpaces(parameterJson) ? null : toValue(JsonParser.parseString(parameterJson));
+        Map<String, Object> variables = Maps.newHashMap();
+        if (parameter instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) parameter).entrySet()) {
+                variables.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+        }
+        variables.put("_parameter", parameter);
+        DynamicSqlRenderer renderer = new DynamicSqlRenderer(IncludeGraph.getInstance(statement.getProject()));
+        StringBuilder builder = new StringBuilder();
+        renderer.renderChildren(statement, new Scope(variables, Collections.emptyMap()), builder, 0);
+        String sql = tidy(builder.toString());
+        if (renderer.parameters.isEmpty()) {
+            return sql;
+        }
+        return sql + "\n-- parameters: " + String.join(", ", renderer.parameters);
+    }
+
+    private void renderChildren(XmlTag tag, Scope scope, StringBuilder builder, int depth) {
+        for (XmlTagChild child : tag.getValue().getChildren()) {
+            ProgressManager.checkCanceled();
+            if (child instanceof XmlText) {
+                builder.append(replacePlaceholders(((XmlText) child).getValue(), scope));
+            } else if (child instanceof XmlTag) {
+                renderTag((XmlTag) child, scope, builder, depth);
+            }
+        }
+    }
+
+    private void renderTag(XmlTag tag, Scope scope, StringBuilder builder, int depth) {
+        switch (tag.getName()) {
+            case "include":
+                XmlTag fragment = graph.resolveInclude(tag);
+                if (null == fragment || depth >= MAX_INCLUDE_DEPTH) {
+                    throw new IllegalArgumentException("Cannot expand <include refid=\"" + tag.getAttributeValue("refid") + "\">");
+                }
+                Map<String, String> properties = Maps.newHashMap(scope.properties);
+                for (Map.Entry<String, String> entry : SqlTextUtils.getIncludeProperties(tag).entrySet()) {
+                    properties.put(entry.getKey(), SqlTextUtils.replaceProperties(entry.getValue(), scope.properties));
+                }
+                builder.append(' ');
+                renderChildren(fragment, new Scope(scope.variables, properties), builder, depth + 1);
+                builder.append(' ');
+                break;
+            case "if":
+                if (OgnlExpression.isTrue(evaluate(tag.getAttributeValue("test"), scope))) {
+                    renderChildren(tag, scope, builder, depth);
+                }
+                break;
+            case "choose":
+                for (XmlTag option : tag.getSubTags()) {
+                    if ("otherwise".equals(option.getName())
+                            || ("when".equals(option.getName()) && OgnlExpression.isTrue(evaluate(option.getAttributeValue("test"), scope)))) {
+                        renderChildren(option, scope, builder, depth);
+                        break;
+                    }
+                }
+                break;
+            case "where":
+                builder.append(trim(render(tag, scope, depth), "WHERE", "AND |OR ", null));
+                break;
+            case "set":
+                builder.append(trim(render(tag, scope, depth), "SET", null, ","));
+                break;
+            case "trim":
+                builder.append(trim(render(tag, scope, depth), tag.getAttributeValue("prefix"),
+                        tag.getAttributeValue("prefixOverrides"), tag.getAttributeValue("suffixOverrides"),
+                        tag.getAttributeValue("suffix")));
+                break;
+            case "foreach":
+                renderForeach(tag, scope, builder, depth);
+                break;
+            case "bind":
+                String name = tag.getAttributeValue("name");
+                if (null != name) {
+                    scope.variables.put(name, evaluate(tag.getAttributeValue("value"), scope));
+                }
+                break;
+            case "selectKey":
+                break;
+            default:
+                renderChildren(tag, scope, builder, depth);
+        }
+    }
+
+    private void renderForeach(XmlTag tag, Scope scope, StringBuilder builder, int depth) {
+        Object collection = evaluate(tag.getAttributeValue("collection"), scope);
+        String item = tag.getAttributeValue("item");
+        String index = tag.getAttributeValue("index");
+        List<String> parts = Lists.newArrayList();
+        int position = 0;
+        for (Map.Entry<Object, Object> entry : toEntries(collection)) {
+            Map<String, Object> variables = Maps.newHashMap(scope.variables);
+            if (null != item) {
+                variables.put(item, entry.getValue());
+            }
+            if (null != index) {
+                variables.put(index, null == entry.getKey() ? (long) position : entry.getKey());
+            }
+            parts.add(render(tag, new Scope(variables, scope.properties), depth));
+            position++;
+        }
+        if (!parts.isEmpty()) {
+            builder.append(StringUtil.notNullize(tag.getAttributeValue("open")))
+                    .append(String.join(StringUtil.notNullize(tag.getAttributeValue("separator")), parts))
+                    .append(StringUtil.notNullize(tag.getAttributeValue("close")));
+        }
+    }
+
+    private String render(XmlTag tag, Scope scope, int depth) {
+        StringBuilder builder = new StringBuilder();
+        renderChildren(tag, scope, builder, depth);
+        return builder.toString();
+    }
+
+    private static String trim(String content, String prefix, String prefixOverrides, String suffixOverrides) {
+        return trim(content, prefix, prefixOverrides, suffixOverrides, null);
+    }
+
+    private static String trim(String content, @Nullable String prefix, @Nullable String prefixOverrides,
+                               @Nullable String suffixOverrides, @Nullable String suffix) {
+        String text = content.trim();
+        if (text.isEmpty()) {
+            return "";
+        }
+        if (null != prefixOverrides) {
+            for (String override : OVERRIDES_SPLITTER.split(prefixOverrides)) {
+                String trimmed = override.trim();
+                boolean separated = override.length() == trimmed.length()
+                        || (text.length() > trimmed.length() && Character.isWhitespace(text.charAt(trimmed.length())));
+                if (!trimmed.isEmpty() && StringUtil.startsWithIgnoreCase(text, trimmed) && separated) {
+                    text = text.substring(trimmed.length()).trim();
+                    break;
+                }
+            }
+        }
+        if (null != suffixOverrides) {
+            for (String override : OVERRIDES_SPLITTER.split(suffixOverrides)) {
+                if (StringUtil.endsWithIgnoreCase(text, override.trim())) {
+                    text = text.substring(0, text.length() - override.trim().length()).trim();
+                    break;
+                }
+            }
+        }
+        return " " + StringUtil.notNullize(prefix) + " " + text + " " + StringUtil.notNullize(suffix) + " ";
+    }
+
+    private String replacePlaceholders(String text, Scope scope) {
+        String replaced = SqlTextUtils.replaceProperties(text, scope.properties);
+        Matcher matcher = PLACEHOLDER.matcher(replaced);
+        StringBuilder builder = new StringBuilder();
+        while (matcher.find()) {
+            String expression = StringUtil.substringBefore(matcher.group(2), ",");
+            Object value = evaluate(null == expression ? matcher.group(2) : expression, scope);
+            String replacement;
+            if ("#".equals(matcher.group(1))) {
+                parameters.add(describe(value));
+                replacement = "?";
+            } else {
+                replacement = String.valueOf(value);
+            }
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    @Nullable
+    private static Object evaluate(@Nullable String expression, Scope scope) {
+        if (null == expression || expression.trim().isEmpty()) {
+            return null;
+        }
+        return OgnlExpression.evaluate(expression.trim(), name -> {
+            if (scope.variables.containsKey(name)) {
+                return scope.variables.get(name);
+            }
+            Object parameter = scope.variables.get("_parameter");
+            return parameter instanceof Map ? null : parameter;
+        });
+    }
+
+    private static String describe(Object value) {
+        return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Map.Entry<Object, Object>> toEntries(@Nullable Object collection) {
+        List<Map.Entry<Object, Object>> result = Lists.newArrayList();
+        if (collection instanceof Map) {
+            result.addAll(((Map<Object, Object>) collection).entrySet());
+        } else if (collection instanceof Collection) {
+            for (Object element : (Collection<?>) collection) {
+                result.add(Maps.immutableEntry(null, element));
+            }
+        } else if (null != collection) {
+            throw new IllegalArgumentException("foreach collection is not a list or an object: " + collection);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Object toValue(@Nullable JsonElement element) {
+        if (null == element || element.isJsonNull()) {
+            return null;
+        }
+        if (element instanceof JsonObject) {
+            Map<String, Object> result = Maps.newLinkedHashMap();
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                result.put(entry.getKey(), toValue(entry.getValue()));
+            }
+            return result;
+        }
+        if (element instanceof JsonArray) {
+            List<Object> result = Lists.newArrayList();
+            for (JsonElement child : (JsonArray) element) {
+                result.add(toValue(child));
+            }
+            return result;
+        }
+        JsonPrimitive primitive = (JsonPrimitive) element;
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isNumber()) {
+            double number = primitive.getAsDouble();
+            return number == Math.rint(number) && !Double.isInfinite(number) ? (Object) primitive.getAsLong() : (Object) number;
+        }
+        return primitive.getAsString();
+    }
+
+    /**
+     * Trims every line and drops the empty ones.
+     */
+    @NotNull
+    public static String tidy(@NotNull String sql) {
+        List<String> lines = Lists.newArrayList();
+        for (String line : StringUtil.splitByLines(sql)) {
+            String trimmed = line.trim().replaceAll("[ \\t]+", " ");
+            if (!trimmed.isEmpty()) {
+                lines.add(trimmed);
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    private static class Scope {
+
+        private final Map<String, Object> variables;
+
+        private final Map<String, String> properties;
+
+        private Scope(Map<String, Object> variables, Map<String, String> properties) {
+            this.variables = variables;
+            this.properties = properties;
+        }
+    }
+
+}
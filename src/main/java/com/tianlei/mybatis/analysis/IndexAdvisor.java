@@ -0,0 +1,322 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.intellij.database.model.DasIndex;
+import com.intellij.database.model.DasTable;
+import com.intellij.database.model.DasTableKey;
+import com.intellij.database.psi.DbPsiFacade;
+import com.intellij.database.util.DasUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.service.IncludeGraph;
+import com.tianlei.mybatis.ui.ReportItem;
+import com.tianlei.mybatis.util.DbToolsUtils;
+import com.tianlei.mybatis.util.MapperUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Suggests composite indexes from the way every statement of the project accesses each table: the columns compared
+ * for equality first, then one range column or else the sort columns. Column lists that are a prefix of another
+ * one count for the longer one, lists an existing index or key already starts with are dropped, and the rest is
+ * ranked by the number of statements using them. Existing indexes that are a prefix of another index or key are
+ * reported as redundant.
+ */
+public final class IndexAdvisor {
+
+    public static final String SUGGESTED_INDEX = "Suggested indexes";
+
+    public static final String REDUNDANT_INDEX = "Redundant indexes";
+
+    private static final int MAX_COLUMNS = 5;
+
+    private IndexAdvisor() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @return the table accesses of the statements of a mapper file, cached until the file, a mapper file it may
+     * include from or a data source changes
+     */
+    @NotNull
+    public static List<Access> collect(@NotNull Project project, @NotNull VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (!(psiFile instanceof XmlFile)) {
+            return Collections.emptyList();
+        }
+        return CachedValuesManager.getCachedValue(psiFile, () -> CachedValueProvider.Result.create(
+                collect(project, (XmlFile) psiFile), psiFile, IncludeGraph.getInstance(project).getModificationTracker(),
+                DbPsiFacade.getInstance(project).getModificationTracker()));
+    }
+
+    private static List<Access> collect(Project project, XmlFile file) {
+        DomFileElement<Mapper> fileElement = DomManager.getDomManager(project).getFileElement(file, Mapper.class);
+        if (null == fileElement) {
+            return Collections.emptyList();
+        }
+        List<Access> result = Lists.newArrayList();
+        for (IdDomElement statement : fileElement.getRootElement().getDaoElements()) {
+            XmlTag tag = statement.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            Map<String, List<PredicateColumns.Use>> tables = Maps.newLinkedHashMap();
+            for (PredicateColumns.Use use : PredicateColumns.collect(tag)) {
+                tables.computeIfAbsent(use.getTable().getName(), name -> Lists.newArrayList()).add(use);
+            }
+            for (List<PredicateColumns.Use> uses : tables.values()) {
+                List<String> columns = getColumns(uses);
+                if (!columns.isEmpty()) {
+                    result.add(new Access(uses.get(0).getTable(), columns, countEqualities(uses, columns),
+                            MapperUtils.getIdSignature(statement), SmartPointerManager.createPointer(tag)));
+                }
+            }
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @return the ranked index suggestions followed by the redundant existing indexes
+     */
+    @NotNull
+    public static List<ReportItem> advise(@NotNull Project project, @NotNull Collection<Access> accesses) {
+        Map<String, Candidate> candidates = Maps.newLinkedHashMap();
+        for (Access access : accesses) {
+            candidates.computeIfAbsent(access.table.getName() + "(" + String.join(",", access.columns) + ")",
+                    key -> new Candidate(access)).add(access);
+        }
+        List<Candidate> ranked = Lists.newArrayList();
+        for (Candidate candidate : candidates.values()) {
+            Candidate longer = findLonger(candidate, candidates.values());
+            if (null != longer) {
+                longer.statements.addAll(candidate.statements);
+            } else {
+                ranked.add(candidate);
+            }
+        }
+        ranked.removeIf(IndexAdvisor::isCovered);
+        ranked.sort(Comparator.comparingInt((Candidate candidate) -> candidate.statements.size()).reversed()
+                .thenComparingInt(candidate -> candidate.columns.size()));
+        List<ReportItem> result = Lists.newArrayList();
+        for (int i = 0; i < ranked.size(); i++) {
+            Candidate candidate = ranked.get(i);
+            PsiElement element = candidate.first.statement.getElement();
+            if (null != element) {
+                result.add(ReportItem.create(SUGGESTED_INDEX, "#" + (i + 1) + " " + candidate.getDdl() + "  used by "
+                        + candidate.statements.size() + " statement(s): " + String.join(", ", candidate.statements), element));
+            }
+        }
+        Map<String, Access> tables = Maps.newLinkedHashMap();
+        for (Access access : accesses) {
+            tables.putIfAbsent(access.table.getName(), access);
+        }
+        for (Access access : tables.values()) {
+            addRedundantIndexes(project, access, result);
+        }
+        return result;
+    }
+
+    /**
+     * Equality columns come first in name order, so statements comparing the same columns share one suggestion.
+     */
+    private static List<String> getColumns(List<PredicateColumns.Use> uses) {
+        Set<String> equalities = Sets.newTreeSet();
+        String range = null;
+        List<String> sorts = Lists.newArrayList();
+        for (PredicateColumns.Use use : uses) {
+            if (PredicateColumns.Clause.ORDER == use.getClause()) {
+                sorts.add(use.getColumn());
+            } else if (use.isEquality()) {
+                equalities.add(use.getColumn());
+            } else if (null == range) {
+                range = use.getColumn();
+            }
+        }
+        List<String> result = Lists.newArrayList(equalities);
+        if (null != range && !equalities.contains(range)) {
+            result.add(range);
+        } else if (null == range) {
+            for (String sort : sorts) {
+                if (!result.contains(sort)) {
+                    result.add(sort);
+                }
+            }
+        }
+        return result.size() > MAX_COLUMNS ? result.subList(0, MAX_COLUMNS) : result;
+    }
+
+    private static int countEqualities(List<PredicateColumns.Use> uses, List<String> columns) {
+        Set<String> equalities = Sets.newHashSet();
+        for (PredicateColumns.Use use : uses) {
+            if (PredicateColumns.Clause.ORDER != use.getClause() && use.isEquality() && columns.contains(use.getColumn())) {
+                equalities.add(use.getColumn());
+            }
+        }
+        return equalities.size();
+    }
+
+    /**
+     * @return the candidate with the most columns on the same table starting with the columns of the given one
+     */
+    private static Candidate findLonger(Candidate candidate, Collection<Candidate> candidates) {
+        Candidate result = null;
+        for (Candidate other : candidates) {
+            if (other.table.getName().equals(candidate.table.getName())
+                    && other.columns.size() > (null == result ? candidate.columns : result.columns).size()
+                    && startsWith(other.columns, candidate.columns, 0)) {
+                result = other;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isCovered(Candidate candidate) {
+        for (List<String> index : getIndexes(candidate.table).values()) {
+            if (startsWith(index, candidate.columns, candidate.equalities)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param unordered the number of leading columns that may come in any order
+     */
+    private static boolean startsWith(List<String> columns, List<String> prefix, int unordered) {
+        if (columns.size() < prefix.size()) {
+            return false;
+        }
+        Set<String> head = Sets.newHashSet();
+        Set<String> expected = Sets.newHashSet();
+        for (int i = 0; i < prefix.size(); i++) {
+            if (i < unordered) {
+                head.add(columns.get(i).toLowerCase());
+                expected.add(prefix.get(i).toLowerCase());
+            } else if (!columns.get(i).equalsIgnoreCase(prefix.get(i))) {
+                return false;
+            }
+        }
+        return head.equals(expected);
+    }
+
+    /**
+     * @return the column lists of the indexes and keys of the table, by name
+     */
+    private static Map<String, List<String>> getIndexes(DasTable table) {
+        Map<String, List<String>> result = Maps.newLinkedHashMap();
+        for (DasTableKey key : DasUtil.getTableKeys(table)) {
+            result.put(key.getName(), DbToolsUtils.getColumnNames(key.getColumnsRef()));
+        }
+        for (DasIndex index : DasUtil.getIndices(table)) {
+            result.putIfAbsent(index.getName(), DbToolsUtils.getColumnNames(index.getColumnsRef()));
+        }
+        return result;
+    }
+
+    /**
+     * Unique indexes are kept, as they enforce a constraint the longer index does not.
+     */
+    private static void addRedundantIndexes(Project project, Access access, List<ReportItem> result) {
+        Map<String, List<String>> indexes = getIndexes(access.table);
+        for (DasIndex index : DasUtil.getIndices(access.table)) {
+            List<String> columns = DbToolsUtils.getColumnNames(index.getColumnsRef());
+            if (index.isUnique() || columns.isEmpty()) {
+                continue;
+            }
+            for (Map.Entry<String, List<String>> other : indexes.entrySet()) {
+                boolean longer = other.getValue().size() > columns.size()
+                        || (other.getValue().size() == columns.size() && other.getKey().compareTo(index.getName()) < 0);
+                if (!other.getKey().equals(index.getName()) && longer && startsWith(other.getValue(), columns, 0)) {
+                    PsiElement element = DbPsiFacade.getInstance(project).findElement(index);
+                    element = null == element ? access.statement.getElement() : element;
+                    if (null != element) {
+                        result.add(ReportItem.create(REDUNDANT_INDEX, access.table.getName() + "." + index.getName()
+                                + " (" + String.join(", ", columns) + ") is covered by " + other.getKey()
+                                + " (" + String.join(", ", other.getValue()) + ")", element));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * How one statement accesses one table.
+     */
+    public static class Access {
+
+        private final DasTable table;
+
+        private final List<String> columns;
+
+        private final int equalities;
+
+        private final String name;
+
+        private final SmartPsiElementPointer<XmlTag> statement;
+
+        private Access(DasTable table, List<String> columns, int equalities, String name, SmartPsiElementPointer<XmlTag> statement) {
+            this.table = table;
+            this.columns = ImmutableList.copyOf(columns);
+            this.equalities = equalities;
+            this.name = name;
+            this.statement = statement;
+        }
+    }
+
+    private static class Candidate {
+
+        private final DasTable table;
+
+        private final List<String> columns;
+
+        private final int equalities;
+
+        private final Access first;
+
+        private final Set<String> statements = Sets.newTreeSet();
+
+        private Candidate(Access first) {
+            this.table = first.table;
+            this.columns = first.columns;
+            this.equalities = first.equalities;
+            this.first = first;
+        }
+
+        private void add(Access access) {
+            statements.add(access.name);
+        }
+
+        private String getDdl() {
+            return "create index idx_" + table.getName().toLowerCase() + "_" + String.join("_", columns).toLowerCase()
+                    + " on " + table.getName() + " (" + String.join(", ", columns) + ");";
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.tianlei.mybatis.annotation.Annotation;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Include;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.dom.model.Select;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
+import com.tianlei.mybatis.index.MapperStatementIndex;
+import com.tianlei.mybatis.index.StatementEntry;
+import com.tianlei.mybatis.inspection.MapperMethodInspection;
+import com.tianlei.mybatis.ui.ReportItem;
+import com.tianlei.mybatis.util.JavaUtils;
+import com.tianlei.mybatis.util.MapperUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Checks one mapper xml against its dao interface, meant to be called in a read action for each mapper file
+ * independently of the others.
+ */
+public final class MappingConsistencyChecker {
+
+    public static final String MISSING_STATEMENT = "Missing statements";
+
+    public static final String ORPHANED_STATEMENT = "Orphaned statements";
+
+    public static final String RESULT_TYPE_MISMATCH = "Result type mismatches";
+
+    public static final String BROKEN_REFID = "Broken refids";
+
+    private MappingConsistencyChecker() {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull
+    public static List<ReportItem> check(@NotNull Project project, @NotNull VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (!(psiFile instanceof XmlFile)) {
+            return Collections.emptyList();
+        }
+        DomFileElement<Mapper> fileElement = DomManager.getDomManager(project).getFileElement((XmlFile) psiFile, Mapper.class);
+        if (null == fileElement) {
+            return Collections.emptyList();
+        }
+        List<ReportItem> result = Lists.newArrayList();
+        Mapper mapper = fileElement.getRootElement();
+        String namespace = MapperUtils.getNamespace(mapper);
+        Optional<PsiClass> clazz = namespace.isEmpty() ? Optional.empty() : JavaUtils.findClazz(project, namespace);
+        checkStatements(mapper, namespace, clazz, result);
+        if (clazz.isPresent() && isPrimaryFile(project, namespace, file)) {
+            checkMethods(project, namespace, clazz.get(), result);
+        }
+        checkIncludes((XmlFile) psiFile, result);
+        return result;
+    }
+
+    private static void checkStatements(Mapper mapper, String namespace, Optional<PsiClass> clazz, List<ReportItem> result) {
+        XmlTag rootTag = mapper.getXmlTag();
+        if (!clazz.isPresent()) {
+            if (null != rootTag && !mapper.getDaoElements().isEmpty()) {
+                result.add(ReportItem.create(ORPHANED_STATEMENT, "Namespace '" + namespace + "' does not resolve to a class", rootTag));
+            }
+            return;
+        }
+        for (IdDomElement element : mapper.getDaoElements()) {
+            ProgressManager.checkCanceled();
+            String id = MapperUtils.getId(element);
+            XmlTag tag = element.getXmlTag();
+            if (null == id || null == tag) {
+                continue;
+            }
+            PsiMethod[] methods = clazz.get().findMethodsByName(id, true);
+            if (0 == methods.length) {
+                result.add(ReportItem.create(ORPHANED_STATEMENT, "Statement '" + id + "' has no method in " + clazz.get().getName(), tag));
+            } else if (element instanceof Select && MapperMethodInspection.hasResultTypeMismatch(methods[0], (Select) element)) {
+                result.add(ReportItem.create(RESULT_TYPE_MISMATCH, "Result type of '" + id + "' doesn't match " + clazz.get().getName() + "." + id, tag));
+            }
+        }
+    }
+
+    private static void checkMethods(Project project, String namespace, PsiClass clazz, List<ReportItem> result) {
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        for (PsiMethod method : clazz.getMethods()) {
+            ProgressManager.checkCanceled();
+            if (method.hasModifierProperty(PsiModifier.DEFAULT)
+                    || method.hasModifierProperty(PsiModifier.STATIC)
+                    || JavaUtils.isAnyAnnotationPresent(method, Annotation.STATEMENT_SYMMETRIES)) {
+                continue;
+            }
+            Ref<Boolean> declared = Ref.create(false);
+            MapperStatementIndex.processEntries(method.getName(), scope, (file, entries) -> {
+                for (StatementEntry entry : entries) {
+                    if (entry.isDaoStatement() && namespace.equals(entry.getNamespace())) {
+                        declared.set(true);
+                        return false;
+                    }
+                }
+                return true;
+            });
+            if (!declared.get()) {
+                PsiElement anchor = null == method.getNameIdentifier() ? method : method.getNameIdentifier();
+                result.add(ReportItem.create(MISSING_STATEMENT, "Method '" + clazz.getName() + "." + method.getName() + "' has no statement", anchor));
+            }
+        }
+    }
+
+    private static void checkIncludes(XmlFile file, List<ReportItem> result) {
+        DomManager domManager = DomManager.getDomManager(file.getProject());
+        for (XmlTag tag : PsiTreeUtil.findChildrenOfType(file, XmlTag.class)) {
+            ProgressManager.checkCanceled();
+            if (!"include".equals(tag.getName())) {
+                continue;
+            }
+            DomElement element = domManager.getDomElement(tag);
+            if (element instanceof Include) {
+                String refid = ((Include) element).getRefId().getStringValue();
+                if (null != refid && !refid.contains("${") && null == ((Include) element).getRefId().getValue()) {
+                    result.add(ReportItem.create(BROKEN_REFID, "Cannot resolve <sql> '" + refid + "'", tag));
+                }
+            }
+        }
+    }
+
+    /**
+     * Missing statements of a namespace split over several mapper files are only reported by the first of them.
+     */
+    private static boolean isPrimaryFile(Project project, String namespace, VirtualFile file) {
+        Set<VirtualFile> files = Sets.newHashSet(MapperNamespaceIndex.findMapperFiles(project, namespace));
+        return files.size() <= 1 || file.equals(Collections.min(files, Comparator.comparing(VirtualFile::getPath)));
+    }
+
+}
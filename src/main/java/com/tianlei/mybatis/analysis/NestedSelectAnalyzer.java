@@ -0,0 +1,116 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttributeValue;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomManager;
+import com.tianlei.mybatis.dom.model.Collection;
+import com.tianlei.mybatis.dom.model.GroupFour;
+import com.tianlei.mybatis.dom.model.NestedSelectGroup;
+import com.tianlei.mybatis.dom.model.Select;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds {@code <association select>} and {@code <collection select>} mappings, each of which runs its select once
+ * per row of the parent result, and estimates how many queries a parent row costs.
+ */
+public final class NestedSelectAnalyzer {
+
+    private NestedSelectAnalyzer() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the nested select mappings of the result map, including those inside nested mappings
+     */
+    @NotNull
+    public static List<NestedSelectGroup> findNestedSelects(@NotNull GroupFour resultMap) {
+        List<NestedSelectGroup> result = Lists.newArrayList();
+        collect(resultMap, result);
+        return result;
+    }
+
+    private static void collect(GroupFour group, List<NestedSelectGroup> result) {
+        List<GroupFour> children = Lists.newArrayList();
+        children.addAll(group.getAssociations());
+        children.addAll(group.getCollections());
+        for (GroupFour child : children) {
+            NestedSelectGroup mapping = (NestedSelectGroup) child;
+            if (null != mapping.getSelect().getStringValue()) {
+                result.add(mapping);
+            }
+            collect(child, result);
+        }
+    }
+
+    /**
+     * @return the tag an id reference attribute such as {@code resultMap} or {@code refid} points to
+     */
+    @Nullable
+    public static XmlTag resolveReference(@Nullable XmlAttributeValue value) {
+        if (null == value) {
+            return null;
+        }
+        for (PsiReference reference : value.getReferences()) {
+            PsiElement target = reference.resolve();
+            if (target instanceof XmlAttributeValue) {
+                return PsiTreeUtil.getParentOfType(target, XmlTag.class);
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    public static XmlTag getSelectTag(@NotNull NestedSelectGroup mapping) {
+        XmlAttributeValue value = mapping.getSelect().getValue();
+        return null == value ? null : PsiTreeUtil.getParentOfType(value, XmlTag.class);
+    }
+
+    public static boolean isCollection(@NotNull NestedSelectGroup mapping) {
+        return mapping instanceof Collection;
+    }
+
+    public static boolean isLazy(@NotNull NestedSelectGroup mapping) {
+        return "lazy".equals(mapping.getFetchType().getStringValue());
+    }
+
+    /**
+     * @return the number of nested selects the rows of the statement trigger in turn, followed through the result
+     * maps of those selects, each counted once
+     */
+    public static int countTransitiveSelects(@NotNull XmlTag select) {
+        return countTransitiveSelects(select, Sets.newHashSet(select));
+    }
+
+    private static int countTransitiveSelects(XmlTag select, Set<XmlTag> visited) {
+        DomElement element = DomManager.getDomManager(select.getProject()).getDomElement(select);
+        if (!(element instanceof Select)) {
+            return 0;
+        }
+        XmlTag resultMapTag = resolveReference(((Select) element).getResultMap().getXmlAttributeValue());
+        DomElement resultMap = null == resultMapTag ? null : DomManager.getDomManager(select.getProject()).getDomElement(resultMapTag);
+        if (!(resultMap instanceof GroupFour)) {
+            return 0;
+        }
+        int count = 0;
+        for (NestedSelectGroup mapping : findNestedSelects((GroupFour) resultMap)) {
+            ProgressManager.checkCanceled();
+            XmlTag nested = getSelectTag(mapping);
+            if (null != nested && visited.add(nested)) {
+                count += 1 + countTransitiveSelects(nested, visited);
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,368 @@
+package com.tianlei.mybatis.analysis;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Evaluates the subset of OGNL found in mapper {@code test}, {@code collection} and {@code bind} attributes against
+ * plain maps, lists, strings, numbers and booleans: property paths, {@code size()}, {@code length()} and
+ * {@code isEmpty()} calls, comparisons, {@code and}/{@code or}/{@code not} and {@code +}/{@code -}.
+ */
+public final class OgnlExpression {
+
+    private final String text;
+
+    private final Function<String, Object> variables;
+
+    private int position;
+
+    /**
+     * Greater than zero while parsing the right operand of a short-circuited {@code and}/{@code or}, which is not
+     * evaluated.
+     */
+    private int skipping;
+
+    private OgnlExpression(String text, Function<String, Object> variables) {
+        this.text = text;
+        this.variables = variables;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is outside the supported subset
+     */
+    @Nullable
+    public static Object evaluate(@NotNull String expression, @NotNull Function<String, Object> variables) {
+        OgnlExpression parser = new OgnlExpression(expression, variables);
+        Object value = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.position < expression.length()) {
+            throw new IllegalArgumentException("Unsupported expression: " + expression);
+        }
+        return value;
+    }
+
+    public static boolean isTrue(@Nullable Object value) {
+        if (null == value) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        }
+        return true;
+    }
+
+    private Object parseOr() {
+        Object left = parseAnd();
+        while (matchWord("or") || match("||")) {
+            boolean value = isTrue(left);
+            Object right = value ? skip(this::parseAnd) : parseAnd();
+            left = value || isTrue(right);
+        }
+        return left;
+    }
+
+    private Object parseAnd() {
+        Object left = parseNot();
+        while (matchWord("and") || match("&&")) {
+            boolean value = isTrue(left);
+            Object right = value ? parseNot() : skip(this::parseNot);
+            left = value && isTrue(right);
+        }
+        return left;
+    }
+
+    private Object skip(Supplier<Object> parser) {
+        skipping++;
+        try {
+            parser.get();
+            return null;
+        } finally {
+            skipping--;
+        }
+    }
+
+    private Object parseNot() {
+        if (matchWord("not")) {
+            return !isTrue(parseNot());
+        }
+        if (peek('!') && !peekAt(1, '=')) {
+            position++;
+            return !isTrue(parseNot());
+        }
+        return parseComparison();
+    }
+
+    private Object parseComparison() {
+        Object left = parseAdditive();
+        if (skipping > 0) {
+            for (String operator : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+                if (match(operator)) {
+                    parseAdditive();
+                    return null;
+                }
+            }
+            for (String operator : new String[]{"eq", "neq", "lte", "gte", "lt", "gt"}) {
+                if (matchWord(operator)) {
+                    parseAdditive();
+                    return null;
+                }
+            }
+            return null;
+        }
+        if (match("==") || matchWord("eq")) {
+            return areEqual(left, parseAdditive());
+        }
+        if (match("!=") || matchWord("neq")) {
+            return !areEqual(left, parseAdditive());
+        }
+        if (match("<=") || matchWord("lte")) {
+            return compare(left, parseAdditive()) <= 0;
+        }
+        if (match(">=") || matchWord("gte")) {
+            return compare(left, parseAdditive()) >= 0;
+        }
+        if (match("<") || matchWord("lt")) {
+            return compare(left, parseAdditive()) < 0;
+        }
+        if (match(">") || matchWord("gt")) {
+            return compare(left, parseAdditive()) > 0;
+        }
+        return left;
+    }
+
+    private Object parseAdditive() {
+        Object left = parsePrimary();
+        while (true) {
+            if (match("+")) {
+                Object right = parsePrimary();
+                left = left instanceof Number && right instanceof Number
+                        ? (Object) (((Number) left).doubleValue() + ((Number) right).doubleValue())
+                        : String.valueOf(left) + right;
+            } else if (peek('-')) {
+                position++;
+                Object right = parsePrimary();
+                left = skipping > 0 ? null : (Object) (toNumber(left) - toNumber(right));
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Object parsePrimary() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw new IllegalArgumentException("Unexpected end of expression: " + text);
+        }
+        char c = current();
+        if ('(' == c) {
+            position++;
+            Object value = parseOr();
+            expect(')');
+            return parseSuffix(value);
+        }
+        if ('\'' == c || '"' == c) {
+            int end = text.indexOf(c, position + 1);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated string: " + text);
+            }
+            String value = text.substring(position + 1, end);
+            position = end + 1;
+            return parseSuffix(value);
+        }
+        if (Character.isDigit(c)) {
+            int start = position;
+            while (position < text.length() && (Character.isDigit(current()) || '.' == current())) {
+                position++;
+            }
+            String number = text.substring(start, position);
+            while (position < text.length() && Character.isLetter(current())) {
+                position++;
+            }
+            return number.contains(".") ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        }
+        String identifier = parseIdentifier();
+        if ("null".equals(identifier)) {
+            return null;
+        }
+        if ("true".equals(identifier) || "false".equals(identifier)) {
+            return Boolean.valueOf(identifier);
+        }
+        return parseSuffix(variables.apply(identifier));
+    }
+
+    private Object parseSuffix(Object value) {
+        while (true) {
+            skipWhitespace();
+            if (peek('.')) {
+                position++;
+                String name = parseIdentifier();
+                skipWhitespace();
+                if (peek('(')) {
+                    position++;
+                    expect(')');
+                    value = skipping > 0 ? null : invoke(value, name);
+                } else {
+                    value = getProperty(value, name);
+                }
+            } else if (peek('[')) {
+                position++;
+                Object index = parseOr();
+                expect(']');
+                value = index instanceof Number ? getElement(value, ((Number) index).intValue()) : getProperty(value, String.valueOf(index));
+            } else {
+                return value;
+            }
+        }
+    }
+
+    private String parseIdentifier() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length() && Character.isJavaIdentifierPart(current())) {
+            position++;
+        }
+        if (start == position) {
+            throw new IllegalArgumentException("Unsupported expression: " + text);
+        }
+        return text.substring(start, position);
+    }
+
+    @Nullable
+    public static Object getProperty(@Nullable Object target, @NotNull String name) {
+        if (target instanceof Map) {
+            return ((Map<?, ?>) target).get(name);
+        }
+        if (("size".equals(name) || "length".equals(name)) && null != target) {
+            return invoke(target, name);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Object getElement(@Nullable Object target, int index) {
+        if (target instanceof List) {
+            List<?> list = (List<?>) target;
+            return index >= 0 && index < list.size() ? list.get(index) : null;
+        }
+        if (null != target && target.getClass().isArray()) {
+            return index >= 0 && index < Array.getLength(target) ? Array.get(target, index) : null;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Object invoke(@Nullable Object target, @NotNull String method) {
+        if (null == target) {
+            throw new IllegalArgumentException("Method " + method + "() called on null");
+        }
+        int size;
+        if (target instanceof Collection) {
+            size = ((Collection<?>) target).size();
+        } else if (target instanceof Map) {
+            size = ((Map<?, ?>) target).size();
+        } else if (target.getClass().isArray()) {
+            size = Array.getLength(target);
+        } else {
+            size = String.valueOf(target).length();
+        }
+        switch (method) {
+            case "size":
+            case "length":
+                return (long) size;
+            case "isEmpty":
+                return 0 == size;
+            case "toString":
+                return String.valueOf(target);
+            case "trim":
+                return String.valueOf(target).trim();
+            default:
+                throw new IllegalArgumentException("Unsupported method " + method + "()");
+        }
+    }
+
+    private static boolean areEqual(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return ((Number) left).doubleValue() == ((Number) right).doubleValue();
+        }
+        if (null == left || null == right) {
+            return left == right;
+        }
+        return Objects.equals(String.valueOf(left), String.valueOf(right));
+    }
+
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number || right instanceof Number) {
+            return Double.compare(toNumber(left), toNumber(right));
+        }
+        return String.valueOf(left).compareTo(String.valueOf(right));
+    }
+
+    private static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private boolean matchWord(String word) {
+        skipWhitespace();
+        int end = position + word.length();
+        if (text.startsWith(word, position) && (end >= text.length() || !Character.isJavaIdentifierPart(text.charAt(end)))) {
+            position = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean match(String operator) {
+        skipWhitespace();
+        if (text.startsWith(operator, position)) {
+            position += operator.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (!peek(c)) {
+            throw new IllegalArgumentException("Expected '" + c + "' in " + text);
+        }
+        position++;
+    }
+
+    private boolean peek(char c) {
+        skipWhitespace();
+        return position < text.length() && text.charAt(position) == c;
+    }
+
+    private boolean peekAt(int offset, char c) {
+        return position + offset < text.length() && text.charAt(position + offset) == c;
+    }
+
+    private char current() {
+        return text.charAt(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.PsiArrayType;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PropertyUtilBase;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomManager;
+import com.tianlei.mybatis.annotation.Annotation;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.util.JavaUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves the java type of a parameter expression such as {@code user.address.city} in a statement, from the
+ * parameters of its dao method, the properties of their types and the items of enclosing {@code <foreach>} tags.
+ */
+public final class ParameterTypeResolver {
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('.').trimResults();
+
+    /**
+     * Names MyBatis gives a single parameter without {@code @Param}, besides its own name.
+     */
+    private static final Set<String> WHOLE_PARAMETER_NAMES = ImmutableSet.of("_parameter", "list", "collection", "array");
+
+    private ParameterTypeResolver() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param context the tag the expression is used in, to look up {@code <foreach>} items
+     * @return the type of the expression, null if the dao method or a property can not be found
+     */
+    @Nullable
+    public static PsiType resolve(@NotNull XmlTag context, @NotNull String expression) {
+        List<String> path = Lists.newArrayList(PATH_SPLITTER.split(expression.replaceAll("\\[[^]]*]", "")));
+        if (path.isEmpty() || path.get(0).isEmpty()) {
+            return null;
+        }
+        PsiType type = resolveForeachItem(context, path.get(0));
+        int start = 1;
+        if (null == type) {
+            IdDomElement statement = getStatement(context);
+            PsiMethod method = null == statement ? null : JavaUtils.findMethod(context.getProject(), statement).orElse(null);
+            if (null == method) {
+                return null;
+            }
+            PsiParameter[] parameters = method.getParameterList().getParameters();
+            PsiParameter parameter = findParameter(parameters, path.get(0));
+            if (null != parameter) {
+                type = parameter.getType();
+            } else if (1 == parameters.length && !JavaUtils.isAnnotationPresent(parameters[0], Annotation.PARAM)) {
+                type = parameters[0].getType();
+                start = isSimpleType(type) || WHOLE_PARAMETER_NAMES.contains(path.get(0)) ? 1 : 0;
+            } else {
+                return null;
+            }
+        }
+        for (String name : path.subList(start, path.size())) {
+            type = null == type ? null : getPropertyType(type, name);
+        }
+        return type;
+    }
+
+    public static boolean isSimpleType(@NotNull PsiType type) {
+        if (type instanceof PsiPrimitiveType) {
+            return true;
+        }
+        PsiClass clazz = PsiUtil.resolveClassInType(type);
+        return null != clazz && (clazz.isEnum() || CommonClassNames.JAVA_LANG_STRING.equals(clazz.getQualifiedName())
+                || null != PsiPrimitiveType.getUnboxedType(type)
+                || InheritanceUtil.isInheritor(clazz, CommonClassNames.JAVA_LANG_NUMBER)
+                || InheritanceUtil.isInheritor(clazz, CommonClassNames.JAVA_UTIL_DATE)
+                || InheritanceUtil.isInheritor(clazz, "java.time.temporal.Temporal"));
+    }
+
+    public static boolean isEnum(@Nullable PsiType type) {
+        PsiClass clazz = null == type ? null : PsiUtil.resolveClassInType(type);
+        return null != clazz && clazz.isEnum();
+    }
+
+    /**
+     * @return the element type of an array or iterable, null for other types
+     */
+    @Nullable
+    public static PsiType getElementType(@Nullable PsiType type) {
+        if (type instanceof PsiArrayType) {
+            return ((PsiArrayType) type).getComponentType();
+        }
+        return null == type ? null : PsiUtil.extractIterableTypeParameter(type, false);
+    }
+
+    /**
+     * @return the statement the tag belongs to
+     */
+    @Nullable
+    public static IdDomElement getStatement(@NotNull XmlTag context) {
+        XmlTag tag = context;
+        while (null != tag.getParentTag() && null != tag.getParentTag().getParentTag()) {
+            tag = tag.getParentTag();
+        }
+        DomElement element = DomManager.getDomManager(context.getProject()).getDomElement(tag);
+        return element instanceof IdDomElement ? (IdDomElement) element : null;
+    }
+
+    @Nullable
+    private static PsiType resolveForeachItem(XmlTag context, String name) {
+        for (XmlTag tag = context; null != tag; tag = tag.getParentTag()) {
+            if ("foreach".equals(tag.getName()) && name.equals(tag.getAttributeValue("item"))) {
+                String collection = tag.getAttributeValue("collection");
+                XmlTag parent = tag.getParentTag();
+                return null == collection || null == parent ? null : getElementType(resolve(parent, collection));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the dao method parameter the name refers to, including the names MyBatis gives a single parameter
+     * without {@code @Param}
+     */
+    @Nullable
+    public static PsiParameter findParameter(@NotNull PsiMethod method, @NotNull String name) {
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        PsiParameter parameter = findParameter(parameters, name);
+        if (null == parameter && 1 == parameters.length && WHOLE_PARAMETER_NAMES.contains(name)
+                && !JavaUtils.isAnnotationPresent(parameters[0], Annotation.PARAM)) {
+            return parameters[0];
+        }
+        return parameter;
+    }
+
+    @Nullable
+    private static PsiParameter findParameter(PsiParameter[] parameters, String name) {
+        for (int i = 0; i < parameters.length; i++) {
+            Optional<String> value = JavaUtils.getAnnotationValueText(parameters[i], Annotation.PARAM);
+            if (value.map(name::equals).orElse(name.equals(parameters[i].getName())) || name.equals("param" + (i + 1))) {
+                return parameters[i];
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiType getPropertyType(PsiType type, String name) {
+        if (!(type instanceof PsiClassType)) {
+            return null;
+        }
+        PsiClass clazz = ((PsiClassType) type).resolve();
+        if (null == clazz || InheritanceUtil.isInheritor(clazz, CommonClassNames.JAVA_UTIL_MAP)) {
+            return null;
+        }
+        PsiMethod getter = PropertyUtilBase.findPropertyGetter(clazz, name, false, true);
+        if (null != getter) {
+            return getter.getReturnType();
+        }
+        PsiField field = clazz.findFieldByName(name, true);
+        return null == field ? null : field.getType();
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.intellij.database.model.DasColumn;
+import com.intellij.database.model.DasTable;
+import com.intellij.database.psi.DbPsiFacade;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.xml.XmlTag;
+import com.tianlei.mybatis.util.DbToolsUtils;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the columns a statement filters, joins and sorts on, and resolves them to the tables of the data sources.
+ * The body is read with includes expanded and every dynamic branch present, so a column counts when any variant of
+ * the statement uses it.
+ */
+public final class PredicateColumns {
+
+    private static final Pattern TAG = Pattern.compile("</?[a-zA-Z][^>\"]*(?:\"[^\"]*\"[^>\"]*)*>");
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("[#$]\\{[^}]*}|'[^']*'");
+
+    private static final Pattern CLAUSE = Pattern.compile(
+            "\\b(where|on|having|order\\s+by|group\\s+by|limit|offset|set|values|select|from|join|union|returning|for\\s+update)\\b");
+
+    private static final Pattern PREDICATE = Pattern.compile(
+            "([a-z_]\\w*(?:\\.[a-z_]\\w*)?)\\s*(=|<>|!=|>=|<=|<|>|\\blike\\b|\\bnot\\s+in\\b|\\bin\\b|\\bbetween\\b|\\bis\\b)");
+
+    private static final Pattern JOINED = Pattern.compile("=\\s*([a-z_]\\w*\\.[a-z_]\\w*)");
+
+    private static final Pattern SORTED = Pattern.compile("^([a-z_]\\w*(?:\\.[a-z_]\\w*)?)\\s*(?:asc|desc)?\\s*$");
+
+    private static final Set<String> KEYWORDS = ImmutableSet.of("and", "or", "not", "null", "exists", "case", "when", "then",
+            "else", "end", "true", "false", "is", "in", "like", "between");
+
+    private PredicateColumns() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the resolved columns of the statement, each once per clause, cached until the next psi or data source
+     * change
+     */
+    @NotNull
+    public static List<Use> collect(@NotNull XmlTag statement) {
+        return CachedValuesManager.getCachedValue(statement, () -> CachedValueProvider.Result.create(
+                collect(statement.getProject(), SqlTextUtils.getExpandedBody(statement)),
+                PsiModificationTracker.getInstance(statement.getProject()),
+                DbPsiFacade.getInstance(statement.getProject()).getModificationTracker()));
+    }
+
+    private static List<Use> collect(Project project, String body) {
+        String sql = PLACEHOLDER.matcher(TAG.matcher(body).replaceAll(" ")).replaceAll("?").toLowerCase();
+        Map<String, String> aliases = SqlTextUtils.getTableAliases(sql);
+        List<Use> result = Lists.newArrayList();
+        Set<String> seen = Sets.newHashSet();
+        Matcher clause = CLAUSE.matcher(sql);
+        String keyword = null;
+        int start = 0;
+        while (true) {
+            boolean found = clause.find();
+            String segment = sql.substring(start, found ? clause.start() : sql.length());
+            if (null != keyword) {
+                collect(project, aliases, keyword, segment, result, seen);
+            }
+            if (!found) {
+                return ImmutableList.copyOf(result);
+            }
+            keyword = clause.group(1).replaceAll("\\s+", " ");
+            start = clause.end();
+        }
+    }
+
+    private static void collect(Project project, Map<String, String> aliases, String keyword, String segment,
+                                List<Use> result, Set<String> seen) {
+        if ("order by".equals(keyword)) {
+            for (String item : segment.split(",")) {
+                Matcher sorted = SORTED.matcher(item.trim());
+                if (sorted.matches()) {
+                    add(project, aliases, sorted.group(1), Clause.ORDER, false, result, seen);
+                }
+            }
+            return;
+        }
+        if (!"where".equals(keyword) && !"on".equals(keyword) && !"having".equals(keyword)) {
+            return;
+        }
+        Clause kind = "on".equals(keyword) ? Clause.JOIN : Clause.FILTER;
+        Matcher predicate = PREDICATE.matcher(segment);
+        while (predicate.find()) {
+            String operator = predicate.group(2);
+            boolean equality = "=".equals(operator) || "in".equals(operator) || "is".equals(operator);
+            add(project, aliases, predicate.group(1), kind, equality, result, seen);
+        }
+        Matcher joined = JOINED.matcher(segment);
+        while (joined.find()) {
+            add(project, aliases, joined.group(1), kind, true, result, seen);
+        }
+    }
+
+    private static void add(Project project, Map<String, String> aliases, String text, Clause clause, boolean equality,
+                            List<Use> result, Set<String> seen) {
+        String qualifier = text.contains(".") ? StringUtil.substringBefore(text, ".") : null;
+        String name = text.contains(".") ? StringUtil.substringAfterLast(text, ".") : text;
+        if (KEYWORDS.contains(name)) {
+            return;
+        }
+        DasTable table = DbToolsUtils.findColumnTable(project, aliases, qualifier, name);
+        DasColumn column = null == table ? null : DbToolsUtils.findColumn(table, name);
+        if (null != column && seen.add(table.getName() + "." + column.getName() + "." + clause)) {
+            result.add(new Use(table, column.getName(), clause, equality));
+        }
+    }
+
+    public enum Clause {
+
+        FILTER,
+        JOIN,
+        ORDER
+
+    }
+
+    public static class Use {
+
+        private final DasTable table;
+
+        private final String column;
+
+        private final Clause clause;
+
+        private final boolean equality;
+
+        private Use(DasTable table, String column, Clause clause, boolean equality) {
+            this.table = table;
+            this.column = column;
+            this.clause = clause;
+            this.equality = equality;
+        }
+
+        @NotNull
+        public DasTable getTable() {
+            return table;
+        }
+
+        @NotNull
+        public String getColumn() {
+            return column;
+        }
+
+        @NotNull
+        public Clause getClause() {
+            return clause;
+        }
+
+        /**
+         * @return whether the column is compared with {@code =}, {@code in} or {@code is}, so it can lead a
+         * composite index followed by a range column
+         */
+        public boolean isEquality() {
+            return equality;
+        }
+
+        @NotNull
+        public String getQualifiedName() {
+            return table.getName() + "." + column;
+        }
+
+        public boolean isIndexed() {
+            return DbToolsUtils.isIndexed(table, column);
+        }
+    }
+
+}
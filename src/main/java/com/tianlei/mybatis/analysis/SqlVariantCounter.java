@@ -0,0 +1,106 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.math.LongMath;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlTagChild;
+import com.tianlei.mybatis.service.IncludeGraph;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounds the number of distinct sql strings a statement can emit, each of which the database prepares and plans
+ * separately. Branch conditions are not correlated, so the bound assumes every {@code <if>} and {@code <when>} can
+ * be taken independently. {@code <where>}, {@code <set>} and {@code <trim>} only rewrite what their children emit.
+ * A {@code <foreach>} emits a different string for every collection size, so it is counted once per size and
+ * reported separately.
+ */
+public final class SqlVariantCounter {
+
+    private static final int MAX_INCLUDE_DEPTH = 32;
+
+    private final IncludeGraph graph;
+
+    private int foreachCount;
+
+    private SqlVariantCounter(IncludeGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the variant bound of the statement, cached until the next psi change
+     */
+    @NotNull
+    public static Variants count(@NotNull XmlTag statement) {
+        return CachedValuesManager.getCachedValue(statement, () -> {
+            SqlVariantCounter counter = new SqlVariantCounter(IncludeGraph.getInstance(statement.getProject()));
+            long count = counter.countChildren(statement, 0);
+            return CachedValueProvider.Result.create(new Variants(count, counter.foreachCount),
+                    PsiModificationTracker.getInstance(statement.getProject()));
+        });
+    }
+
+    private long countChildren(XmlTag tag, int depth) {
+        long count = 1;
+        for (XmlTagChild child : tag.getValue().getChildren()) {
+            if (child instanceof XmlTag) {
+                count = LongMath.saturatedMultiply(count, countTag((XmlTag) child, depth));
+            }
+        }
+        return count;
+    }
+
+    private long countTag(XmlTag tag, int depth) {
+        ProgressManager.checkCanceled();
+        switch (tag.getName()) {
+            case "include":
+                XmlTag fragment = depth < MAX_INCLUDE_DEPTH ? graph.resolveInclude(tag) : null;
+                return null == fragment ? 1 : countChildren(fragment, depth + 1);
+            case "if":
+                return LongMath.saturatedAdd(countChildren(tag, depth), 1);
+            case "choose":
+                long count = 0;
+                boolean otherwise = false;
+                for (XmlTag option : tag.getSubTags()) {
+                    otherwise |= "otherwise".equals(option.getName());
+                    count = LongMath.saturatedAdd(count, countChildren(option, depth));
+                }
+                return otherwise ? Math.max(count, 1) : LongMath.saturatedAdd(count, 1);
+            case "foreach":
+                foreachCount++;
+                return countChildren(tag, depth);
+            case "bind":
+            case "selectKey":
+                return 1;
+            default:
+                return countChildren(tag, depth);
+        }
+    }
+
+    public static class Variants {
+
+        private final long count;
+
+        private final int foreachCount;
+
+        private Variants(long count, int foreachCount) {
+            this.count = count;
+            this.foreachCount = foreachCount;
+        }
+
+        /**
+         * @return the number of distinct sql strings for one size of every foreach collection, saturated at
+         * {@link Long#MAX_VALUE}
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public int getForeachCount() {
+            return foreachCount;
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.tianlei.mybatis.analysis;
+
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.PsiArrayType;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypes;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.JDBCType;
+import java.sql.Types;
+
+/**
+ * The kinds of values a database compares without converting one side.
+ */
+public enum TypeCategory {
+
+    STRING,
+    NUMERIC,
+    BOOLEAN,
+    TEMPORAL,
+    BINARY;
+
+    /**
+     * @return the category of a {@link Types} constant, null for the other types
+     */
+    @Nullable
+    public static TypeCategory fromJdbcType(int jdbcType) {
+        switch (jdbcType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return STRING;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return NUMERIC;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+            case Types.TIME_WITH_TIMEZONE:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return TEMPORAL;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BINARY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param name a {@code jdbcType} attribute value such as {@code VARCHAR}
+     */
+    @Nullable
+    public static TypeCategory fromJdbcTypeName(@NotNull String name) {
+        try {
+            return fromJdbcType(JDBCType.valueOf(name.trim().toUpperCase()).getVendorTypeNumber());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Enums are strings, as the default type handler binds their names.
+     *
+     * @return the category of a java type, null for beans, collections and the other types
+     */
+    @Nullable
+    public static TypeCategory fromJavaType(@Nullable PsiType type) {
+        if (null == type) {
+            return null;
+        }
+        if (type instanceof PsiArrayType) {
+            return PsiTypes.byteType().equals(((PsiArrayType) type).getComponentType()) ? BINARY : null;
+        }
+        PsiPrimitiveType primitive = type instanceof PsiPrimitiveType ? (PsiPrimitiveType) type : PsiPrimitiveType.getUnboxedType(type);
+        if (null != primitive) {
+            return PsiTypes.booleanType().equals(primitive) ? BOOLEAN : PsiTypes.charType().equals(primitive) ? STRING : NUMERIC;
+        }
+        PsiClass clazz = PsiUtil.resolveClassInType(type);
+        if (null == clazz) {
+            return null;
+        }
+        if (clazz.isEnum() || CommonClassNames.JAVA_LANG_STRING.equals(clazz.getQualifiedName())) {
+            return STRING;
+        }
+        if (InheritanceUtil.isInheritor(clazz, CommonClassNames.JAVA_LANG_NUMBER)) {
+            return NUMERIC;
+        }
+        if (InheritanceUtil.isInheritor(clazz, CommonClassNames.JAVA_UTIL_DATE)
+                || InheritanceUtil.isInheritor(clazz, "java.time.temporal.Temporal")) {
+            return TEMPORAL;
+        }
+        return null;
+    }
+
+    /**
+     * A string is converted once to the type of the column, and a boolean is a number to most databases, every other
+     * pair converts the column on each row.
+     *
+     * @return whether comparing a column with a value of the category converts the column
+     */
+    public boolean convertsColumnOf(@NotNull TypeCategory column) {
+        if (this == column || STRING == this) {
+            return false;
+        }
+        return !((BOOLEAN == this && NUMERIC == column) || (NUMERIC == this && BOOLEAN == column));
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Sets;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.UsageSearchContext;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.dom.model.ResultMap;
+import com.tianlei.mybatis.dom.model.Sql;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
+import com.tianlei.mybatis.util.JavaUtils;
+import com.tianlei.mybatis.util.MapperUtils;
+import com.tianlei.mybatis.util.MybatisConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Finds the statements without dao method and the {@code <sql>} and {@code <resultMap>} elements nobody refers to.
+ * Dao methods are looked up in a cached name set of the namespace class and xml references are only searched in
+ * the mapper files the namespace index knows to mention the namespace. No fragment is reported while the mapper,
+ * or one referring to it, has an include with a {@code ${...}} refid.
+ */
+public final class UnusedStatementDetector {
+
+    public static final String UNUSED_STATEMENT = "Statements without dao method";
+
+    public static final String UNUSED_SQL = "Unreferenced sql fragments";
+
+    public static final String UNUSED_RESULT_MAP = "Unreferenced result maps";
+
+    /**
+     * Stands for an {@code <include refid="${...}">}, whose fragment is only known at runtime.
+     */
+    private static final String DYNAMIC_REFERENCE = "${";
+
+    private static final Splitter REFERENCE_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private UnusedStatementDetector() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the unused tags of the mapper file, cached until the next psi change
+     */
+    @NotNull
+    public static Set<XmlTag> findUnusedTags(@NotNull XmlFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(
+                computeUnusedTags(file), PsiModificationTracker.getInstance(file.getProject())));
+    }
+
+    @NotNull
+    public static String getCategory(@NotNull XmlTag tag) {
+        if ("sql".equals(tag.getName())) {
+            return UNUSED_SQL;
+        }
+        return "resultMap".equals(tag.getName()) ? UNUSED_RESULT_MAP : UNUSED_STATEMENT;
+    }
+
+    @NotNull
+    public static String getDescription(@NotNull XmlTag tag) {
+        String id = tag.getAttributeValue("id");
+        if ("sql".equals(tag.getName())) {
+            return "<sql> '" + id + "' is never included";
+        }
+        if ("resultMap".equals(tag.getName())) {
+            return "<resultMap> '" + id + "' is never referenced";
+        }
+        return "<" + tag.getName() + "> '" + id + "' has no dao method and is never referenced";
+    }
+
+    private static Set<XmlTag> computeUnusedTags(XmlFile file) {
+        Project project = file.getProject();
+        DomFileElement<Mapper> fileElement = DomManager.getDomManager(project).getFileElement(file, Mapper.class);
+        if (null == fileElement) {
+            return Collections.emptySet();
+        }
+        Mapper mapper = fileElement.getRootElement();
+        String namespace = MapperUtils.getNamespace(mapper);
+        if (namespace.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> references = collectReferences(project, file, namespace);
+        Set<String> methodNames = findMethodNames(project, namespace);
+        Set<XmlTag> result = Sets.newHashSet();
+        if (null != methodNames) {
+            for (IdDomElement element : mapper.getDaoElements()) {
+                ProgressManager.checkCanceled();
+                String id = MapperUtils.getId(element);
+                if (null != id && !methodNames.contains(id) && !references.contains(qualify(namespace, id))
+                        && !isMentionedInJava(project, id)) {
+                    addTag(element, result);
+                }
+            }
+        }
+        for (Sql sql : references.contains(DYNAMIC_REFERENCE) ? Collections.<Sql>emptyList() : mapper.getSqls()) {
+            String id = MapperUtils.getId(sql);
+            if (null != id && !references.contains(qualify(namespace, id))) {
+                addTag(sql, result);
+            }
+        }
+        for (ResultMap resultMap : mapper.getResultMaps()) {
+            String id = MapperUtils.getId(resultMap);
+            if (null != id && !references.contains(qualify(namespace, id)) && !isMentionedInJava(project, id)) {
+                addTag(resultMap, result);
+            }
+        }
+        return result;
+    }
+
+    private static void addTag(IdDomElement element, Set<XmlTag> result) {
+        XmlTag tag = element.getXmlTag();
+        if (null != tag) {
+            result.add(tag);
+        }
+    }
+
+    /**
+     * @return the method names of every class declared with the namespace name, null if there is none
+     */
+    @Nullable
+    private static Set<String> findMethodNames(Project project, String namespace) {
+        PsiClass[] classes = JavaUtils.findClazzes(project, namespace).orElse(PsiClass.EMPTY_ARRAY);
+        if (0 == classes.length) {
+            return null;
+        }
+        if (1 == classes.length) {
+            return JavaUtils.getMethodNames(classes[0]);
+        }
+        Set<String> result = Sets.newHashSet();
+        for (PsiClass clazz : classes) {
+            result.addAll(JavaUtils.getMethodNames(clazz));
+        }
+        return result;
+    }
+
+    /**
+     * Collects the qualified ids referenced from the file itself and from every mapper file referring to its namespace.
+     */
+    private static Set<String> collectReferences(Project project, XmlFile file, String namespace) {
+        Set<String> result = Sets.newHashSet();
+        collectReferences(file, namespace, result);
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile virtualFile : MapperNamespaceIndex.findFiles(project, namespace, MapperNamespaceIndex.REFERENCED)) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = psiManager.findFile(virtualFile);
+            if (psiFile instanceof XmlFile && !psiFile.equals(file)) {
+                XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+                String fileNamespace = null == rootTag ? null : rootTag.getAttributeValue("namespace");
+                collectReferences((XmlFile) psiFile, null == fileNamespace ? "" : fileNamespace.trim(), result);
+            }
+        }
+        return result;
+    }
+
+    private static void collectReferences(XmlFile file, String namespace, Set<String> result) {
+        for (XmlTag tag : PsiTreeUtil.findChildrenOfType(file, XmlTag.class)) {
+            for (XmlAttribute attribute : tag.getAttributes()) {
+                String value = attribute.getValue();
+                if (null == value || !MapperNamespaceIndex.ID_REFERENCE_ATTRIBUTES.contains(attribute.getName())) {
+                    continue;
+                }
+                for (String reference : REFERENCE_SPLITTER.split(value)) {
+                    if (reference.contains(DYNAMIC_REFERENCE)) {
+                        result.add(DYNAMIC_REFERENCE);
+                        continue;
+                    }
+                    result.add(reference.contains(MybatisConstants.DOT_SEPARATOR) ? reference : qualify(namespace, reference));
+                }
+            }
+        }
+    }
+
+    /**
+     * Result maps are also referenced by name from {@code @ResultMap} annotations and statements from
+     * {@code SqlSession} calls like {@code selectList("ns.id")}, any java string holding the id is taken as a
+     * possible use.
+     */
+    private static boolean isMentionedInJava(Project project, String id) {
+        GlobalSearchScope scope = GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.projectScope(project), JavaFileType.INSTANCE);
+        return !PsiSearchHelper.getInstance(project).processCandidateFilesForText(scope, UsageSearchContext.IN_STRINGS, true, id, file -> false);
+    }
+
+    private static String qualify(String namespace, String id) {
+        return namespace + MybatisConstants.DOT_SEPARATOR + id;
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.tianlei.mybatis.analysis;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlTagChild;
+import com.intellij.psi.xml.XmlText;
+import com.tianlei.mybatis.service.IncludeGraph;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Proves whether a statement always sends a WHERE clause. Conditions are not evaluated: an {@code <if>} or a
+ * {@code <foreach>} may emit nothing, a {@code <choose>} always emits something only with an {@code <otherwise>}
+ * and when every option does, and a {@code <where>} emits a clause only when one of its children does.
+ */
+public final class WhereClauseAnalyzer {
+
+    private static final Pattern STATIC_WHERE = Pattern.compile("(?is).*\\bwhere\\b\\s*\\S.*");
+
+    private static final int MAX_INCLUDE_DEPTH = 32;
+
+    private WhereClauseAnalyzer() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static boolean isAlwaysFiltered(@NotNull XmlTag statement) {
+        return emitsWhere(statement, IncludeGraph.getInstance(statement.getProject()), 0);
+    }
+
+    /**
+     * @return the first {@code <where>}, or {@code <trim>} with a where prefix, at the top of the statement
+     */
+    @Nullable
+    public static XmlTag findWhereTag(@NotNull XmlTag statement) {
+        for (XmlTag tag : statement.getSubTags()) {
+            if (isWhereTag(tag)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return for each child of the where tag that may emit nothing, the OGNL condition under which it emits
+     * something, null if one of them can not be expressed
+     */
+    @Nullable
+    public static List<String> getConditions(@NotNull XmlTag where) {
+        List<String> result = Lists.newArrayList();
+        IncludeGraph graph = IncludeGraph.getInstance(where.getProject());
+        for (XmlTag tag : where.getSubTags()) {
+            if (isNonEmpty(tag, graph, 0)) {
+                continue;
+            }
+            switch (tag.getName()) {
+                case "if":
+                    String test = tag.getAttributeValue("test");
+                    if (StringUtil.isEmptyOrSpaces(test)) {
+                        return null;
+                    }
+                    result.add(test.trim());
+                    break;
+                case "choose":
+                    List<String> tests = Lists.newArrayList();
+                    for (XmlTag when : tag.findSubTags("when")) {
+                        String whenTest = when.getAttributeValue("test");
+                        if (StringUtil.isEmptyOrSpaces(whenTest)) {
+                            return null;
+                        }
+                        tests.add(whenTest.trim());
+                    }
+                    if (tests.isEmpty() || 0 != tag.findSubTags("otherwise").length) {
+                        return null;
+                    }
+                    result.add(String.join(" or ", wrap(tests)));
+                    break;
+                case "foreach":
+                    String collection = tag.getAttributeValue("collection");
+                    if (StringUtil.isEmptyOrSpaces(collection)) {
+                        return null;
+                    }
+                    result.add(collection.trim() + " != null and " + collection.trim() + ".size() > 0");
+                    break;
+                case "bind":
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    public static String createGuardTest(@NotNull List<String> conditions) {
+        return "!(" + String.join(" or ", wrap(conditions)) + ")";
+    }
+
+    private static List<String> wrap(List<String> conditions) {
+        if (1 == conditions.size()) {
+            return conditions;
+        }
+        List<String> result = Lists.newArrayList();
+        for (String condition : conditions) {
+            result.add("(" + condition + ")");
+        }
+        return result;
+    }
+
+    private static boolean isWhereTag(XmlTag tag) {
+        return "where".equals(tag.getName())
+                || ("trim".equals(tag.getName()) && "where".equalsIgnoreCase(StringUtil.trim(tag.getAttributeValue("prefix"))));
+    }
+
+    /**
+     * @return whether the children always emit a where clause with a predicate
+     */
+    private static boolean emitsWhere(XmlTag tag, IncludeGraph graph, int depth) {
+        for (XmlTagChild child : tag.getValue().getChildren()) {
+            if (child instanceof XmlText) {
+                if (STATIC_WHERE.matcher(((XmlText) child).getValue()).matches()) {
+                    return true;
+                }
+            } else if (child instanceof XmlTag) {
+                XmlTag childTag = (XmlTag) child;
+                if (isWhereTag(childTag)) {
+                    if (isNonEmpty(childTag, graph, depth)) {
+                        return true;
+                    }
+                } else if ("include".equals(childTag.getName())) {
+                    XmlTag fragment = depth < MAX_INCLUDE_DEPTH ? graph.resolveInclude(childTag) : null;
+                    if (null != fragment && emitsWhere(fragment, graph, depth + 1)) {
+                        return true;
+                    }
+                } else if ("choose".equals(childTag.getName()) && 0 != childTag.findSubTags("otherwise").length) {
+                    boolean all = true;
+                    for (XmlTag option : childTag.getSubTags()) {
+                        all &= emitsWhere(option, graph, depth);
+                    }
+                    if (all) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the tag always emits some text
+     */
+    private static boolean isNonEmpty(XmlTag tag, IncludeGraph graph, int depth) {
+        switch (tag.getName()) {
+            case "if":
+            case "foreach":
+            case "bind":
+                return false;
+            case "choose":
+                if (0 == tag.findSubTags("otherwise").length) {
+                    return false;
+                }
+                for (XmlTag option : tag.getSubTags()) {
+                    if (!hasNonEmptyChild(option, graph, depth)) {
+                        return false;
+                    }
+                }
+                return true;
+            case "include":
+                XmlTag fragment = depth < MAX_INCLUDE_DEPTH ? graph.resolveInclude(tag) : null;
+                return null != fragment && hasNonEmptyChild(fragment, graph, depth + 1);
+            default:
+                return hasNonEmptyChild(tag, graph, depth);
+        }
+    }
+
+    private static boolean hasNonEmptyChild(XmlTag tag, IncludeGraph graph, int depth) {
+        for (XmlTagChild child : tag.getValue().getChildren()) {
+            if (child instanceof XmlText ? !((XmlText) child).getValue().trim().isEmpty()
+                    : child instanceof XmlTag && isNonEmpty((XmlTag) child, graph, depth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
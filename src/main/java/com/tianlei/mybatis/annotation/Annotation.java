@@ -27,6 +27,10 @@ public class Annotation implements Cloneable {
 
     public static final Annotation ALIAS = new Annotation("@Alias", "org.apache.ibatis.type.Alias");
 
+    public static final Annotation MAPPER = new Annotation("@Mapper", "org.apache.ibatis.annotations.Mapper");
+
+    public static final Annotation MAPPER_SCAN = new Annotation("@MapperScan", "org.mybatis.spring.annotation.MapperScan");
+
     public static final Annotation AUTOWIRED = new Annotation("@Autowired", "org.springframework.beans.factory.annotation.Autowired");
 
     public static final Annotation RESOURCE = new Annotation("@Resource", "javax.annotation.Resource");
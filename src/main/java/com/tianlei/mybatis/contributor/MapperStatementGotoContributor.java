@@ -0,0 +1,58 @@
+package com.tianlei.mybatis.contributor;
+
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.GotoClassContributor;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.intellij.util.indexing.IdFilter;
+import com.tianlei.mybatis.index.MapperStatementIndex;
+import com.tianlei.mybatis.index.StatementEntry;
+import com.tianlei.mybatis.util.MybatisConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Serves statement, {@code <sql>} and {@code <resultMap>} ids to Go to Symbol from {@link MapperStatementIndex}.
+ * Candidates are matched on the id and, when the pattern is qualified, on {@code namespace.id}.
+ */
+public class MapperStatementGotoContributor implements ChooseByNameContributorEx, GotoClassContributor {
+
+    @Override
+    public void processNames(@NotNull Processor<? super String> processor, @NotNull GlobalSearchScope scope, @Nullable IdFilter filter) {
+        FileBasedIndex.getInstance().processAllKeys(MapperStatementIndex.NAME, processor, scope, filter);
+    }
+
+    @Override
+    public void processElementsWithName(@NotNull String name,
+                                        @NotNull Processor<? super NavigationItem> processor,
+                                        @NotNull FindSymbolParameters parameters) {
+        Project project = parameters.getProject();
+        FileBasedIndex.getInstance().processValues(MapperStatementIndex.NAME, name, null, (file, entries) -> {
+            for (StatementEntry entry : entries) {
+                ProgressManager.checkCanceled();
+                if (!processor.process(new StatementNavigationItem(project, file, name, entry))) {
+                    return false;
+                }
+            }
+            return true;
+        }, parameters.getSearchScope(), parameters.getIdFilter());
+    }
+
+    @Nullable
+    @Override
+    public String getQualifiedName(@NotNull NavigationItem item) {
+        return item instanceof StatementNavigationItem ? ((StatementNavigationItem) item).getQualifiedName() : null;
+    }
+
+    @Nullable
+    @Override
+    public String getQualifiedNameSeparator() {
+        return MybatisConstants.DOT_SEPARATOR;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.tianlei.mybatis.contributor;
+
+import com.intellij.navigation.ItemPresentation;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.tianlei.mybatis.index.StatementEntry;
+import com.tianlei.mybatis.util.Icons;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+/**
+ * Navigates to an indexed mapper declaration by file offset, without loading its PSI or DOM.
+ */
+public class StatementNavigationItem implements NavigationItem, ItemPresentation {
+
+    private final Project project;
+
+    private final VirtualFile file;
+
+    private final String id;
+
+    private final StatementEntry entry;
+
+    public StatementNavigationItem(@NotNull Project project, @NotNull VirtualFile file, @NotNull String id, @NotNull StatementEntry entry) {
+        this.project = project;
+        this.file = file;
+        this.id = id;
+        this.entry = entry;
+    }
+
+    @NotNull
+    public String getQualifiedName() {
+        return entry.getNamespace().isEmpty() ? id : entry.getNamespace() + "." + id;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return id;
+    }
+
+    @NotNull
+    @Override
+    public ItemPresentation getPresentation() {
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableText() {
+        return id;
+    }
+
+    @Nullable
+    @Override
+    public String getLocationString() {
+        return "<" + entry.getTagName() + "> " + entry.getNamespace() + " (" + file.getName() + ")";
+    }
+
+    @Nullable
+    @Override
+    public Icon getIcon(boolean unused) {
+        return entry.isDaoStatement() ? Icons.STATEMENT_LINE_MARKER_ICON : Icons.MYBATIS_LOGO;
+    }
+
+    @Override
+    public void navigate(boolean requestFocus) {
+        new OpenFileDescriptor(project, file, entry.getOffset()).navigate(requestFocus);
+    }
+
+    @Override
+    public boolean canNavigate() {
+        return file.isValid();
+    }
+
+    @Override
+    public boolean canNavigateToSource() {
+        return canNavigate();
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.tianlei.mybatis.definitionsearch;
+
+import com.intellij.find.findUsages.CustomUsageSearcher;
+import com.intellij.find.findUsages.FindUsagesOptions;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.pom.PomTarget;
+import com.intellij.pom.PomTargetPsiElement;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.search.searches.MethodReferencesSearch;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlAttributeValue;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.usages.Usage;
+import com.intellij.usages.UsageInfo2UsageAdapter;
+import com.intellij.util.Processor;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomTarget;
+import com.intellij.util.xml.DomUtil;
+import com.tianlei.mybatis.dom.model.GroupTwo;
+import com.tianlei.mybatis.util.JavaUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Finds the java call sites of a mapper xml statement: the statement id is mapped to the dao method through its
+ * namespace class, then only the references of that method are searched. It only takes part in Find Usages, as a
+ * references search would make renaming the statement rename the call sites without their dao method.
+ */
+public class StatementUsageSearcher extends CustomUsageSearcher {
+
+    @Override
+    public void processElementUsages(@NotNull PsiElement element, @NotNull Processor<? super Usage> processor,
+                                     @NotNull FindUsagesOptions options) {
+        PsiMethod[] methods = ReadAction.compute(() -> findDaoMethods(element));
+        for (PsiMethod method : methods) {
+            SearchScope scope = ReadAction.compute(() -> method.getUseScope().intersectWith(options.searchScope));
+            boolean proceed = MethodReferencesSearch.search(method, scope, true).forEach(reference -> {
+                ProgressManager.checkCanceled();
+                return processor.process(ReadAction.compute(() -> new UsageInfo2UsageAdapter(new UsageInfo(reference))));
+            });
+            if (!proceed) {
+                return;
+            }
+        }
+    }
+
+    @NotNull
+    private PsiMethod[] findDaoMethods(@NotNull PsiElement target) {
+        DomElement domElement = getDomElement(target);
+        if (!(domElement instanceof GroupTwo)) {
+            return PsiMethod.EMPTY_ARRAY;
+        }
+        return JavaUtils.findMethods(target.getProject(), (GroupTwo) domElement).orElse(PsiMethod.EMPTY_ARRAY);
+    }
+
+    /**
+     * Only the statement itself and the value of its id attribute stand for the statement.
+     */
+    @Nullable
+    private DomElement getDomElement(@NotNull PsiElement target) {
+        if (target instanceof PomTargetPsiElement) {
+            PomTarget pomTarget = ((PomTargetPsiElement) target).getTarget();
+            return pomTarget instanceof DomTarget ? ((DomTarget) pomTarget).getDomElement() : null;
+        }
+        if (target instanceof XmlAttributeValue && target.getParent() instanceof XmlAttribute
+                && "id".equals(((XmlAttribute) target.getParent()).getName())) {
+            return DomUtil.getDomElement(((XmlAttribute) target.getParent()).getParent());
+        }
+        return null;
+    }
+
+}
@@ -2,6 +2,7 @@ package com.tianlei.mybatis.dom.converter;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.ElementManipulators;
@@ -44,6 +45,7 @@ public abstract class IdBasedTagConverter extends ConverterAdaptor<XmlAttributeV
     private Optional<XmlAttributeValue> matchIdDomElement(Collection<? extends IdDomElement> idDomElements, String value, ConvertContext context) {
         Mapper contextMapper = MapperUtils.getMapper(context.getInvocationElement());
         for (IdDomElement idDomElement : idDomElements) {
+            ProgressManager.checkCanceled();
             if (MapperUtils.getIdSignature(idDomElement).equals(value) ||
                     MapperUtils.getIdSignature(idDomElement, contextMapper).equals(value)) {
                 return Optional.of(idDomElement.getId().getXmlAttributeValue());
@@ -107,6 +109,7 @@ public abstract class IdBasedTagConverter extends ConverterAdaptor<XmlAttributeV
         public Collection<? extends IdDomElement> getValue() {
             List<IdDomElement> result = Lists.newArrayList();
             for (Mapper mapper : MapperUtils.findMappers(context.getProject())) {
+                ProgressManager.checkCanceled();
                 result.addAll(getComparisons(mapper, context));
             }
             return result;
@@ -184,6 +187,7 @@ public abstract class IdBasedTagConverter extends ConverterAdaptor<XmlAttributeV
             Set<String> res = Sets.newHashSet();
             String ns = text.substring(0, text.lastIndexOf(MybatisConstants.DOT_SEPARATOR));
             for (IdDomElement ele : selectStrategy(context).getValue()) {
+                ProgressManager.checkCanceled();
                 if (MapperUtils.getNamespace(ele).equals(ns)) {
                     res.add(MapperUtils.getId(ele));
                 }
@@ -196,6 +200,7 @@ public abstract class IdBasedTagConverter extends ConverterAdaptor<XmlAttributeV
             Collection<? extends IdDomElement> idDomElements = selectStrategy(context).getValue();
             Set<String> res = new HashSet<String>(idDomElements.size());
             for (IdDomElement ele : idDomElements) {
+                ProgressManager.checkCanceled();
                 res.add(MapperUtils.getIdSignature(ele, contextMapper));
             }
             return res;
@@ -7,7 +7,7 @@ import com.intellij.util.xml.GenericAttributeValue;
 import com.tianlei.mybatis.dom.converter.AliasConverter;
 import org.jetbrains.annotations.NotNull;
 
-public interface Association extends GroupFour, ResultMapGroup, PropertyGroup {
+public interface Association extends GroupFour, ResultMapGroup, PropertyGroup, NestedSelectGroup {
 
     @NotNull
     @Attribute("javaType")
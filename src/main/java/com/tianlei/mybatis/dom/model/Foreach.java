@@ -1,5 +1,33 @@
 package com.tianlei.mybatis.dom.model;
 
+import com.intellij.util.xml.Attribute;
+import com.intellij.util.xml.GenericAttributeValue;
+import org.jetbrains.annotations.NotNull;
+
 public interface Foreach extends GroupOne {
 
+    @NotNull
+    @Attribute("collection")
+    GenericAttributeValue<String> getCollection();
+
+    @NotNull
+    @Attribute("item")
+    GenericAttributeValue<String> getItem();
+
+    @NotNull
+    @Attribute("index")
+    GenericAttributeValue<String> getIndex();
+
+    @NotNull
+    @Attribute("open")
+    GenericAttributeValue<String> getOpen();
+
+    @NotNull
+    @Attribute("close")
+    GenericAttributeValue<String> getClose();
+
+    @NotNull
+    @Attribute("separator")
+    GenericAttributeValue<String> getSeparator();
+
 }
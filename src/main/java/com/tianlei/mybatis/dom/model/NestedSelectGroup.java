@@ -0,0 +1,26 @@
+package com.tianlei.mybatis.dom.model;
+
+import com.intellij.psi.xml.XmlAttributeValue;
+import com.intellij.util.xml.Attribute;
+import com.intellij.util.xml.Convert;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.GenericAttributeValue;
+import com.tianlei.mybatis.dom.converter.SelectConverter;
+import org.jetbrains.annotations.NotNull;
+
+public interface NestedSelectGroup extends DomElement {
+
+    @NotNull
+    @Attribute("select")
+    @Convert(SelectConverter.class)
+    GenericAttributeValue<XmlAttributeValue> getSelect();
+
+    @NotNull
+    @Attribute("column")
+    GenericAttributeValue<String> getColumn();
+
+    @NotNull
+    @Attribute("fetchType")
+    GenericAttributeValue<String> getFetchType();
+
+}
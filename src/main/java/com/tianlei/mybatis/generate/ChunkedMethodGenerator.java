@@ -0,0 +1,187 @@
+package com.tianlei.mybatis.generate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypes;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiUtil;
+import com.tianlei.mybatis.service.EditorService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a default method next to a dao method taking a collection, which calls the dao method once per chunk of
+ * the collection and combines the results. The padded variant also pads every chunk to a power of two by repeating
+ * its last element, so the database only ever sees a handful of IN list sizes.
+ */
+public final class ChunkedMethodGenerator {
+
+    public static final int CHUNK_SIZE = 1000;
+
+    /**
+     * A power of two below the 1000 expressions Oracle allows in one IN list.
+     */
+    public static final int PADDED_CHUNK_SIZE = 512;
+
+    private ChunkedMethodGenerator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return whether the method returns a list, a collection, a count or nothing, and the parameter is a list, a
+     * set or a collection, or a list or a collection for the padded variant
+     */
+    public static boolean isApplicable(@NotNull PsiMethod method, @NotNull PsiParameter parameter, boolean padded) {
+        PsiClass containingClass = method.getContainingClass();
+        return null != containingClass && containingClass.isInterface() && null != getAggregation(method.getReturnType())
+                && null != getElementType(parameter.getType())
+                && (!padded || !InheritanceUtil.isInheritor(parameter.getType(), CommonClassNames.JAVA_UTIL_SET));
+    }
+
+    public static void generate(@NotNull Project project, @NotNull PsiMethod method, @NotNull PsiParameter parameter, boolean padded) {
+        PsiClass clazz = method.getContainingClass();
+        if (null == clazz || !isApplicable(method, parameter, padded)) {
+            return;
+        }
+        String name = getUniqueName(clazz, method.getName() + (padded ? "InPaddedChunks" : "InChunks"));
+        String text = createMethodText(method, parameter, name, padded);
+        WriteCommandAction.writeCommandAction(project, clazz.getContainingFile())
+                .withName("Generate Chunked Dao Method")
+                .run(() -> {
+                    PsiMethod chunked = JavaPsiFacade.getElementFactory(project).createMethodFromText(text, clazz);
+                    PsiElement added = clazz.addAfter(chunked, method);
+                    JavaCodeStyleManager.getInstance(project).shortenClassReferences(added);
+                    CodeStyleManager.getInstance(project).reformat(added);
+                    EditorService.getInstance(project).scrollTo(added, 0);
+                });
+    }
+
+    private static String createMethodText(PsiMethod method, PsiParameter parameter, String name, boolean padded) {
+        PsiType returnType = method.getReturnType();
+        String aggregation = getAggregation(returnType);
+        String elementType = getElementType(parameter.getType()).getCanonicalText();
+        String chunkSize = String.valueOf(padded ? PADDED_CHUNK_SIZE : CHUNK_SIZE);
+        List<String> parameters = Lists.newArrayList();
+        List<String> arguments = Lists.newArrayList();
+        Set<String> names = Sets.newHashSet();
+        for (PsiParameter each : method.getParameterList().getParameters()) {
+            names.add(each.getName());
+        }
+        String values = getUniqueLocalName(parameter, "values", names);
+        String result = getUniqueLocalName(parameter, "result", names);
+        String from = getUniqueLocalName(parameter, "from", names);
+        String chunk = getUniqueLocalName(parameter, "chunk", names);
+        for (PsiParameter each : method.getParameterList().getParameters()) {
+            parameters.add(each.getType().getCanonicalText() + " " + each.getName());
+            arguments.add(each.equals(parameter) ? chunkArgument(parameter, chunk) : each.getName());
+        }
+        String call = method.getName() + "(" + String.join(", ", arguments) + ")";
+        StringBuilder builder = new StringBuilder();
+        builder.append("default ").append(returnType.getCanonicalText()).append(' ').append(name)
+                .append('(').append(String.join(", ", parameters)).append(") {\n");
+        builder.append("java.util.List<").append(elementType).append("> ").append(values).append(" = new java.util.ArrayList<>(")
+                .append(parameter.getName()).append(");\n");
+        if ("list".equals(aggregation)) {
+            builder.append(returnType.getCanonicalText()).append(' ').append(result).append(" = new java.util.ArrayList<>();\n");
+        } else if (!"void".equals(aggregation)) {
+            builder.append(returnType.getCanonicalText()).append(' ').append(result).append(" = 0;\n");
+        }
+        builder.append("for (int ").append(from).append(" = 0; ").append(from).append(" < ").append(values).append(".size(); ")
+                .append(from).append(" += ").append(chunkSize).append(") {\n");
+        builder.append("java.util.List<").append(elementType).append("> ").append(chunk).append(" = new java.util.ArrayList<>(")
+                .append(values).append(".subList(").append(from).append(", Math.min(").append(from).append(" + ")
+                .append(chunkSize).append(", ").append(values).append(".size())));\n");
+        if (padded) {
+            builder.append("while (Integer.bitCount(").append(chunk).append(".size()) != 1) {\n")
+                    .append(chunk).append(".add(").append(chunk).append(".get(").append(chunk).append(".size() - 1));\n}\n");
+        }
+        if ("list".equals(aggregation)) {
+            builder.append(result).append(".addAll(").append(call).append(");\n");
+        } else if ("count".equals(aggregation)) {
+            builder.append(result).append(" += ").append(call).append(";\n");
+        } else {
+            builder.append(call).append(";\n");
+        }
+        builder.append("}\n");
+        if (!"void".equals(aggregation)) {
+            builder.append("return ").append(result).append(";\n");
+        }
+        return builder.append("}").toString();
+    }
+
+    private static String chunkArgument(PsiParameter parameter, String chunk) {
+        return InheritanceUtil.isInheritor(parameter.getType(), CommonClassNames.JAVA_UTIL_SET)
+                ? "new java.util.LinkedHashSet<>(" + chunk + ")" : chunk;
+    }
+
+    /**
+     * @return a name for a local of the generated method that is neither a parameter nor another local
+     */
+    private static String getUniqueLocalName(PsiParameter place, String base, Set<String> names) {
+        JavaCodeStyleManager codeStyleManager = JavaCodeStyleManager.getInstance(place.getProject());
+        String name = codeStyleManager.suggestUniqueVariableName(base, place, true);
+        for (int i = 1; names.contains(name); i++) {
+            name = codeStyleManager.suggestUniqueVariableName(base + i, place, true);
+        }
+        names.add(name);
+        return name;
+    }
+
+    /**
+     * @return how the results of the chunks are combined: "list", "count" or "void", null if they can not be
+     */
+    @Nullable
+    private static String getAggregation(@Nullable PsiType type) {
+        if (null == type) {
+            return null;
+        }
+        if (PsiTypes.voidType().equals(type)) {
+            return "void";
+        }
+        if (PsiTypes.intType().equals(type) || PsiTypes.longType().equals(type)) {
+            return "count";
+        }
+        if (type instanceof PsiClassType) {
+            String raw = ((PsiClassType) type).rawType().getCanonicalText();
+            if (CommonClassNames.JAVA_UTIL_LIST.equals(raw) || CommonClassNames.JAVA_UTIL_COLLECTION.equals(raw)) {
+                return "list";
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static PsiType getElementType(PsiType type) {
+        if (!(type instanceof PsiClassType)) {
+            return null;
+        }
+        String raw = ((PsiClassType) type).rawType().getCanonicalText();
+        boolean supported = CommonClassNames.JAVA_UTIL_LIST.equals(raw) || CommonClassNames.JAVA_UTIL_SET.equals(raw)
+                || CommonClassNames.JAVA_UTIL_COLLECTION.equals(raw);
+        return supported ? PsiUtil.extractIterableTypeParameter(type, false) : null;
+    }
+
+    private static String getUniqueName(PsiClass clazz, String base) {
+        String name = base;
+        for (int i = 1; 0 != clazz.findMethodsByName(name, false).length; i++) {
+            name = base + i;
+        }
+        return name;
+    }
+
+}
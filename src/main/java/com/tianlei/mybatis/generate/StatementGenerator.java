@@ -10,12 +10,15 @@ import com.intellij.openapi.ui.popup.util.BaseListPopupStep;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
 import com.intellij.psi.PsiPrimitiveType;
 import com.intellij.psi.PsiType;
 import com.intellij.psi.impl.source.PsiClassReferenceType;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.CommonProcessors.CollectProcessor;
+import com.tianlei.mybatis.annotation.Annotation;
 import com.tianlei.mybatis.dom.model.GroupTwo;
+import com.tianlei.mybatis.dom.model.IdDomElement;
 import com.tianlei.mybatis.dom.model.Mapper;
 import com.tianlei.mybatis.service.EditorService;
 import com.tianlei.mybatis.service.JavaService;
@@ -24,6 +27,7 @@ import com.tianlei.mybatis.ui.ListSelectionListener;
 import com.tianlei.mybatis.ui.UiComponentFacade;
 import com.tianlei.mybatis.util.CollectionUtils;
 import com.tianlei.mybatis.util.JavaUtils;
+import com.tianlei.mybatis.util.MapperUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -109,6 +113,89 @@ public abstract class StatementGenerator {
         return CollectionUtils.isNotEmpty(result) ? result.toArray(new StatementGenerator[result.size()]) : ALL.toArray(new StatementGenerator[ALL.size()]);
     }
 
+    /**
+     * @return the first generator whose patterns match the method name, the select generator if none does
+     */
+    @NotNull
+    public static StatementGenerator findGenerator(@NotNull PsiMethod method) {
+        GenerateModel model = MybatisSetting.getInstance().getStatementGenerateModel();
+        for (StatementGenerator generator : ALL) {
+            if (model.matchesAny(generator.getPatterns(), method.getName())) {
+                return generator;
+            }
+        }
+        return SELECT_GENERATOR;
+    }
+
+    /**
+     * Generates the statements of the given dao methods, which have none yet. The mappers and the missing methods are
+     * those the caller read once, all tags are added in a single write command and the mapper is formatted once.
+     */
+    public static void applyGenerateAll(@NotNull final PsiClass clazz,
+                                        @NotNull Collection<Mapper> mappers,
+                                        @NotNull final List<PsiMethod> methods) {
+        final List<Mapper> targets = Lists.newArrayList(mappers);
+        if (1 == targets.size()) {
+            generateAll(clazz, targets.get(0), methods);
+        } else if (targets.size() > 1) {
+            Collection<String> paths = Collections2.transform(targets, FUN);
+            UiComponentFacade.getInstance(clazz.getProject()).showListPopup("Choose target mapper xml to generate", new ListSelectionListener() {
+                @Override
+                public void selected(int index) {
+                    generateAll(clazz, targets.get(index), methods);
+                }
+
+                @Override
+                public boolean isWriteAction() {
+                    return false;
+                }
+            }, paths.toArray(new String[paths.size()]));
+        }
+    }
+
+    @NotNull
+    public static List<PsiMethod> getMissingMethods(@NotNull PsiClass clazz, @NotNull Collection<Mapper> mappers) {
+        Set<String> ids = Sets.newHashSet();
+        for (Mapper mapper : mappers) {
+            for (IdDomElement element : mapper.getDaoElements()) {
+                ids.add(MapperUtils.getId(element));
+            }
+        }
+        List<PsiMethod> result = Lists.newArrayList();
+        for (PsiMethod method : clazz.getMethods()) {
+            if (!method.hasModifierProperty(PsiModifier.DEFAULT)
+                    && !method.hasModifierProperty(PsiModifier.STATIC)
+                    && !JavaUtils.isAnyAnnotationPresent(method, Annotation.STATEMENT_SYMMETRIES)
+                    && !ids.contains(method.getName())) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    private static void generateAll(@NotNull PsiClass clazz, @NotNull Mapper target, @NotNull List<PsiMethod> methods) {
+        if (methods.isEmpty() || !target.isValid()) {
+            return;
+        }
+        Project project = clazz.getProject();
+        final List<XmlTag> tags = Lists.newArrayList();
+        WriteCommandAction.writeCommandAction(project, target.getXmlElement().getContainingFile())
+                .withName("Generate Missing Statements")
+                .run(() -> {
+                    for (PsiMethod method : methods) {
+                        if (method.isValid()) {
+                            tags.add(findGenerator(method).generateTag(target, method).getXmlTag());
+                        }
+                    }
+                    XmlTag rootTag = target.getXmlTag();
+                    EditorService.getInstance(project).format(rootTag.getContainingFile(), rootTag);
+                });
+        XmlTag first = Iterables.getFirst(tags, null);
+        if (null != first && first.isValid()) {
+            EditorService.getInstance(project).scrollTo(first, first.getTextOffset());
+        }
+    }
+
     private Set<String> patterns;
 
     public StatementGenerator(@NotNull String... patterns) {
@@ -140,16 +227,24 @@ public abstract class StatementGenerator {
     }
 
     private void setupTag(PsiMethod method, Mapper mapper) {
-        GroupTwo target = getTarget(mapper, method);
-        target.getId().setStringValue(method.getName());
-        target.setValue(" ");
-        XmlTag tag = target.getXmlTag();
+        XmlTag tag = generateTag(mapper, method).getXmlTag();
         int offset = tag.getTextOffset() + tag.getTextLength() - tag.getName().length() + 1;
         EditorService editorService = EditorService.getInstance(method.getProject());
         editorService.format(tag.getContainingFile(), tag);
         editorService.scrollTo(tag, offset);
     }
 
+    /**
+     * Adds the statement tag for the method to the mapper, without formatting or moving the caret.
+     */
+    @NotNull
+    public GroupTwo generateTag(@NotNull Mapper mapper, @NotNull PsiMethod method) {
+        GroupTwo target = getTarget(mapper, method);
+        target.getId().setStringValue(method.getName());
+        target.setValue(" ");
+        return target;
+    }
+
     @Override
     public String toString() {
         return this.getDisplayText();
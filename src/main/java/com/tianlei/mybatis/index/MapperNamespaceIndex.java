@@ -0,0 +1,191 @@
+package com.tianlei.mybatis.index;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorIntegerDescriptor;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.tianlei.mybatis.util.DomUtils;
+import com.tianlei.mybatis.util.MybatisConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Maps qualified names to the mapper xml files mentioning them: the namespace a mapper declares,
+ * the namespaces of its cross-mapper {@code refid}/{@code resultMap}/{@code select}/{@code extends} references
+ * and the fully qualified java types it uses.
+ */
+public class MapperNamespaceIndex extends FileBasedIndexExtension<String, Integer> {
+
+    public static final ID<String, Integer> NAME = ID.create("mybatis.mapper.namespace");
+
+    /**
+     * The file declares the key as its namespace.
+     */
+    public static final int DECLARED = 1;
+
+    /**
+     * The file references a statement, fragment or result map of the key namespace.
+     */
+    public static final int REFERENCED = 1 << 1;
+
+    /**
+     * The file uses the key as a java type.
+     */
+    public static final int TYPE = 1 << 2;
+
+    public static final Set<String> ID_REFERENCE_ATTRIBUTES = ImmutableSet.of("refid", "resultMap", "extends", "select", "parameterMap");
+
+    public static final Set<String> TYPE_ATTRIBUTES = ImmutableSet.of("type", "resultType", "parameterType", "ofType", "javaType", "typeHandler");
+
+    @NotNull
+    @Override
+    public ID<String, Integer> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Integer, FileContent> getIndexer() {
+        return inputData -> {
+            if (!StringUtil.contains(inputData.getContentAsText(), "<mapper")) {
+                return Collections.emptyMap();
+            }
+            PsiFile psiFile = inputData.getPsiFile();
+            if (!DomUtils.isMybatisFile(psiFile)) {
+                return Collections.emptyMap();
+            }
+            XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+            Map<String, Integer> result = new HashMap<>();
+            String namespace = rootTag.getAttributeValue("namespace");
+            if (StringUtil.isNotEmpty(namespace)) {
+                result.put(namespace, DECLARED);
+            }
+            indexTag(rootTag, result);
+            return result;
+        };
+    }
+
+    private static void indexTag(@NotNull XmlTag tag, @NotNull Map<String, Integer> result) {
+        for (XmlTag subTag : tag.getSubTags()) {
+            for (XmlAttribute attribute : subTag.getAttributes()) {
+                String value = attribute.getValue();
+                if (StringUtil.isEmpty(value)) {
+                    continue;
+                }
+                String name = attribute.getName();
+                if (ID_REFERENCE_ATTRIBUTES.contains(name)) {
+                    for (String ref : StringUtil.split(value, ",")) {
+                        String refNamespace = getReferencedNamespace(ref.trim());
+                        if (null != refNamespace) {
+                            result.merge(refNamespace, REFERENCED, (a, b) -> a | b);
+                        }
+                    }
+                } else if (TYPE_ATTRIBUTES.contains(name) && value.contains(MybatisConstants.DOT_SEPARATOR)) {
+                    result.merge(value.trim(), TYPE, (a, b) -> a | b);
+                } else if ("cache-ref".equals(subTag.getName()) && "namespace".equals(name)) {
+                    result.merge(value.trim(), REFERENCED, (a, b) -> a | b);
+                }
+            }
+            indexTag(subTag, result);
+        }
+    }
+
+    /**
+     * @return the namespace part of a qualified {@code namespace.id} reference, null for a local one
+     */
+    @Nullable
+    public static String getReferencedNamespace(@NotNull String reference) {
+        int index = reference.lastIndexOf(MybatisConstants.DOT_SEPARATOR);
+        return index > 0 ? reference.substring(0, index) : null;
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<Integer> getValueExternalizer() {
+        return EnumeratorIntegerDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(XmlFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * @return the mapper xml files declaring the given namespace
+     */
+    @NotNull
+    public static Collection<VirtualFile> findMapperFiles(@NotNull Project project, @NotNull String namespace) {
+        return findFiles(project, namespace, DECLARED);
+    }
+
+    /**
+     * @return the mapper xml files mentioning the given qualified name with any of the given flags
+     */
+    @NotNull
+    public static Collection<VirtualFile> findFiles(@NotNull Project project, @NotNull String qualifiedName, int flags) {
+        List<VirtualFile> result = new ArrayList<>();
+        FileBasedIndex.getInstance().processValues(NAME, qualifiedName, null, (file, value) -> {
+            if ((value & flags) != 0) {
+                result.add(file);
+            }
+            return true;
+        }, GlobalSearchScope.allScope(project));
+        return result;
+    }
+
+    /**
+     * Collects the mapper xml files mentioning any qualified name accepted by the filter, only the keys of the
+     * index are enumerated.
+     */
+    @NotNull
+    public static Set<VirtualFile> findFiles(@NotNull Project project, @NotNull Predicate<String> filter) {
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        List<String> keys = new ArrayList<>();
+        FileBasedIndex.getInstance().processAllKeys(NAME, key -> {
+            ProgressManager.checkCanceled();
+            if (filter.test(key)) {
+                keys.add(key);
+            }
+            return true;
+        }, scope, null);
+        Set<VirtualFile> result = Sets.newLinkedHashSet();
+        for (String key : keys) {
+            result.addAll(FileBasedIndex.getInstance().getContainingFiles(NAME, key, scope));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.tianlei.mybatis.index;
+
+import com.google.common.collect.ImmutableSet;
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.tianlei.mybatis.util.DomUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Maps the id of every statement, {@code <sql>} and {@code <resultMap>} to where it is declared,
+ * straight from the xml tags so no DOM has to be built to find them.
+ */
+public class MapperStatementIndex extends FileBasedIndexExtension<String, List<StatementEntry>> {
+
+    public static final ID<String, List<StatementEntry>> NAME = ID.create("mybatis.mapper.statement");
+
+    private static final Set<String> INDEXED_TAGS = ImmutableSet.of("select", "insert", "update", "delete", "sql", "resultMap");
+
+    @NotNull
+    @Override
+    public ID<String, List<StatementEntry>> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, List<StatementEntry>, FileContent> getIndexer() {
+        return inputData -> {
+            if (!StringUtil.contains(inputData.getContentAsText(), "<mapper")) {
+                return Collections.emptyMap();
+            }
+            PsiFile psiFile = inputData.getPsiFile();
+            if (!DomUtils.isMybatisFile(psiFile)) {
+                return Collections.emptyMap();
+            }
+            XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+            String namespace = StringUtil.notNullize(rootTag.getAttributeValue("namespace"));
+            Map<String, List<StatementEntry>> result = new HashMap<>();
+            for (XmlTag tag : rootTag.getSubTags()) {
+                String id = tag.getAttributeValue("id");
+                if (INDEXED_TAGS.contains(tag.getName()) && StringUtil.isNotEmpty(id)) {
+                    result.computeIfAbsent(id, key -> new ArrayList<>(1)).add(new StatementEntry(namespace, tag.getName(), tag.getTextOffset()));
+                }
+            }
+            return result;
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<List<StatementEntry>> getValueExternalizer() {
+        return StatementEntry.LIST_EXTERNALIZER;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(XmlFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * Feeds every declaration of the given id to the processor, together with the file declaring it.
+     */
+    public static boolean processEntries(@NotNull String id,
+                                         @NotNull GlobalSearchScope scope,
+                                         @NotNull FileBasedIndex.ValueProcessor<List<StatementEntry>> processor) {
+        return FileBasedIndex.getInstance().processValues(NAME, id, null, processor, scope);
+    }
+
+}
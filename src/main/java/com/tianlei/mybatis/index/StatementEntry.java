@@ -0,0 +1,92 @@
+package com.tianlei.mybatis.index;
+
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A statement, {@code <sql>} or {@code <resultMap>} declared in a mapper xml, as stored by {@link MapperStatementIndex}.
+ */
+public class StatementEntry {
+
+    private final String namespace;
+
+    private final String tagName;
+
+    private final int offset;
+
+    public StatementEntry(@NotNull String namespace, @NotNull String tagName, int offset) {
+        this.namespace = namespace;
+        this.tagName = tagName;
+        this.offset = offset;
+    }
+
+    @NotNull
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @NotNull
+    public String getTagName() {
+        return tagName;
+    }
+
+    /**
+     * @return text offset of the declaring tag inside its file
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean isDaoStatement() {
+        return "select".equals(tagName) || "insert".equals(tagName) || "update".equals(tagName) || "delete".equals(tagName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StatementEntry that = (StatementEntry) o;
+        return offset == that.offset && namespace.equals(that.namespace) && tagName.equals(that.tagName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(namespace, tagName, offset);
+    }
+
+    static final DataExternalizer<List<StatementEntry>> LIST_EXTERNALIZER = new DataExternalizer<List<StatementEntry>>() {
+        @Override
+        public void save(@NotNull DataOutput out, List<StatementEntry> value) throws IOException {
+            DataInputOutputUtil.writeINT(out, value.size());
+            for (StatementEntry entry : value) {
+                IOUtil.writeUTF(out, entry.namespace);
+                IOUtil.writeUTF(out, entry.tagName);
+                DataInputOutputUtil.writeINT(out, entry.offset);
+            }
+        }
+
+        @Override
+        public List<StatementEntry> read(@NotNull DataInput in) throws IOException {
+            int size = DataInputOutputUtil.readINT(in);
+            List<StatementEntry> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new StatementEntry(IOUtil.readUTF(in), IOUtil.readUTF(in), DataInputOutputUtil.readINT(in)));
+            }
+            return result;
+        }
+    };
+
+}
@@ -0,0 +1,44 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.XmlElementFactory;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Adds an {@code <if>} matching no row when every other condition of the where clause is false.
+ */
+public class AddWhereGuardQuickFix extends GenericQuickFix {
+
+    private final SmartPsiElementPointer<XmlTag> where;
+
+    private final String test;
+
+    public AddWhereGuardQuickFix(@NotNull XmlTag where, @NotNull String test) {
+        this.where = SmartPointerManager.createPointer(where);
+        this.test = test;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Add guard matching no row when every condition is false";
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        XmlTag tag = where.getElement();
+        if (null == tag) {
+            return;
+        }
+        XmlTag guard = XmlElementFactory.getInstance(project)
+                .createTagFromText("<if test=\"" + StringUtil.escapeXmlEntities(test) + "\">1 = 0</if>");
+        CodeStyleManager.getInstance(project).reformat(tag.addSubTag(guard, false));
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Lists;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.dom.model.Association;
+import com.tianlei.mybatis.dom.model.Collection;
+import com.tianlei.mybatis.dom.model.GroupFour;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.dom.model.Result;
+import com.tianlei.mybatis.dom.model.ResultMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Reports result maps whose join-loaded collections multiply each other's rows, and result maps with join-loaded
+ * collections but no {@code <id>}, whose rows MyBatis then has to group by every mapped column.
+ */
+public class CartesianProductInspection extends DomElementsInspection<Mapper> {
+
+    public CartesianProductInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        for (ResultMap resultMap : domFileElement.getRootElement().getResultMaps()) {
+            check(resultMap, true, null == resultMap.getExtends().getStringValue(), holder);
+        }
+    }
+
+    /**
+     * @param checkPairs false for a joined association, whose collections were already paired with those of the
+     *                   group it belongs to
+     */
+    private static void check(GroupFour group, boolean checkPairs, boolean checkId, DomElementAnnotationHolder holder) {
+        List<Collection> collections = findJoinCollections(group);
+        if (checkPairs && collections.size() > 1) {
+            String first = getProperty(collections.get(0));
+            for (Collection collection : collections.subList(1, collections.size())) {
+                String property = getProperty(collection);
+                holder.createProblem(collection, "Collections '" + first + "' and '" + property
+                        + "' are joined in one query, which returns " + first + " x " + property + " rows per parent. "
+                        + "Load '" + property + "' with a second statement mapped to its own result map, so each query joins one collection");
+            }
+        }
+        if (checkId && !collections.isEmpty() && group.getIds().isEmpty() && group.getConstructor().getIdArgs().isEmpty()) {
+            Result idResult = findIdResult(group);
+            DomElement target = group instanceof ResultMap ? ((ResultMap) group).getId() : group;
+            String message = "Result map with join collections has no <id>, so rows are grouped by every mapped column. "
+                    + (null == idResult ? "Map the primary key column with <id>" : "Map 'id' with <id> instead of <result>");
+            holder.createProblem(target, message, null == idResult ? LocalQuickFix.EMPTY_ARRAY : new LocalQuickFix[]{new ResultToIdQuickFix(idResult)});
+        }
+        for (Collection collection : group.getCollections()) {
+            check(collection, true, true, holder);
+        }
+        for (Association association : group.getAssociations()) {
+            check(association, null != association.getSelect().getStringValue(), false, holder);
+        }
+    }
+
+    /**
+     * @return the collections of the group and of its associations that are not loaded by a nested select
+     */
+    private static List<Collection> findJoinCollections(GroupFour group) {
+        List<Collection> result = Lists.newArrayList();
+        for (Collection collection : group.getCollections()) {
+            if (null == collection.getSelect().getStringValue()) {
+                result.add(collection);
+            }
+        }
+        for (Association association : group.getAssociations()) {
+            if (null == association.getSelect().getStringValue()) {
+                result.addAll(findJoinCollections(association));
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Result findIdResult(GroupFour group) {
+        for (Result result : group.getResults()) {
+            if ("id".equals(result.getProperty().getStringValue())) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static String getProperty(Collection collection) {
+        String property = collection.getProperty().getStringValue();
+        return null == property ? "?" : property;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.NotNull;
+
+public class DeleteTagQuickFix extends GenericQuickFix {
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Delete unused element";
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        XmlTag tag = PsiTreeUtil.getParentOfType(descriptor.getPsiElement(), XmlTag.class, false);
+        if (null != tag) {
+            tag.delete();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.CommonClassNames;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlText;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.ParameterTypeResolver;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.intellij.codeInspection.options.OptPane.checkbox;
+import static com.intellij.codeInspection.options.OptPane.pane;
+import static com.intellij.codeInspection.options.OptPane.stringList;
+
+/**
+ * Reports {@code ${}} substitutions in statements and sql fragments. The substituted value becomes part of the sql
+ * text, so every distinct value is prepared and planned again, and it is an injection risk. Include properties,
+ * whitelisted names and, optionally, enums used as identifiers are allowed. A value that is quoted, or whose type is
+ * numeric, boolean or temporal, can be bound with {@code #{}} instead.
+ */
+public class DollarSubstitutionInspection extends DomElementsInspection<Mapper> {
+
+    private static final Pattern SUBSTITUTION = Pattern.compile("(')?\\$\\{([^}]*)}(')?");
+
+    private static final Pattern IDENTIFIER_CONTEXT = Pattern.compile(
+            "(?is).*(\\border\\s+by|\\bgroup\\s+by|\\bfrom|\\bjoin|\\binto|\\bupdate|\\btable|\\bselect|\\.|\\b(asc|desc)\\s*,)\\s*$");
+
+    public List<String> allowedNames = Lists.newArrayList();
+
+    public boolean allowEnumIdentifiers = true;
+
+    public DollarSubstitutionInspection() {
+        super(Mapper.class);
+    }
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(
+                stringList("allowedNames", "Allowed ${} names"),
+                checkbox("allowEnumIdentifiers", "Allow enum values used as column or table names"));
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        Mapper mapper = domFileElement.getRootElement();
+        XmlTag rootTag = domFileElement.getRootTag();
+        Set<String> includeProperties = Sets.newHashSet();
+        if (null != rootTag) {
+            for (XmlTag include : PsiTreeUtil.findChildrenOfType(rootTag, XmlTag.class)) {
+                if ("include".equals(include.getName())) {
+                    includeProperties.addAll(SqlTextUtils.getIncludeProperties(include).keySet());
+                }
+            }
+        }
+        for (IdDomElement element : Iterables.concat(mapper.getDaoElements(), mapper.getSqls())) {
+            XmlTag tag = element.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            boolean fragment = "sql".equals(tag.getName());
+            for (XmlText text : PsiTreeUtil.findChildrenOfType(tag, XmlText.class)) {
+                Matcher matcher = SUBSTITUTION.matcher(text.getText());
+                while (matcher.find()) {
+                    String name = StringUtil.notNullize(StringUtil.substringBefore(matcher.group(2), ","), matcher.group(2)).trim();
+                    if (name.isEmpty() || allowedNames.contains(name) || (fragment && includeProperties.contains(name))) {
+                        continue;
+                    }
+                    check(element, tag, text, matcher, name, holder);
+                }
+            }
+        }
+    }
+
+    private void check(IdDomElement element, XmlTag tag, XmlText text, Matcher matcher, String name, DomElementAnnotationHolder holder) {
+        XmlTag context = PsiTreeUtil.getParentOfType(text, XmlTag.class);
+        PsiType type = null == context ? null : ParameterTypeResolver.resolve(context, name);
+        String before = text.getText().substring(0, matcher.start());
+        boolean quoted = null != matcher.group(1) && null != matcher.group(3);
+        boolean identifier = !quoted && IDENTIFIER_CONTEXT.matcher(before).matches();
+        if (identifier && allowEnumIdentifiers && ParameterTypeResolver.isEnum(type)) {
+            return;
+        }
+        String typeText = null == type ? "unknown type" : type.getPresentableText();
+        String message = "${" + name + "} (" + typeText + ") is inlined into the sql: every value is prepared again and may inject sql";
+        boolean insideLiteral = 1 == StringUtil.countChars(before, '\'') % 2;
+        boolean bindable = !identifier && (quoted || (!insideLiteral && null == matcher.group(1) && null == matcher.group(3)
+                && null != type && ParameterTypeResolver.isSimpleType(type) && !ParameterTypeResolver.isEnum(type)
+                && !type.equalsToText(CommonClassNames.JAVA_LANG_STRING)));
+        int start = quoted ? matcher.start() : matcher.start() + (null == matcher.group(1) ? 0 : 1);
+        int end = quoted ? matcher.end() : matcher.end() - (null == matcher.group(3) ? 0 : 1);
+        int offset = text.getTextRange().getStartOffset() - tag.getTextRange().getStartOffset();
+        TextRange range = new TextRange(offset + start, offset + end);
+        String parameter = "#{" + matcher.group(2).trim() + "}";
+        LocalQuickFix[] fixes = bindable
+                ? new LocalQuickFix[]{new ReplaceRangeQuickFix("Replace with " + parameter, parameter)} : LocalQuickFix.EMPTY_ARRAY;
+        holder.createProblem(element, ProblemHighlightType.GENERIC_ERROR_OR_WARNING, message, range, fixes);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Iterables;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.WhereClauseAnalyzer;
+import com.tianlei.mybatis.dom.model.GroupTwo;
+import com.tianlei.mybatis.dom.model.Mapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Reports updates and deletes that can be sent without a WHERE clause, which then touch every row of the table:
+ * statements with no where at all, and statements whose {@code <where>} only holds conditional content.
+ */
+public class EmptyWhereInspection extends DomElementsInspection<Mapper> {
+
+    public EmptyWhereInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        Mapper mapper = domFileElement.getRootElement();
+        DomManager domManager = DomManager.getDomManager(domFileElement.getFile().getProject());
+        for (GroupTwo statement : Iterables.<GroupTwo>concat(mapper.getUpdates(), mapper.getDeletes())) {
+            XmlTag tag = statement.getXmlTag();
+            if (null == tag || WhereClauseAnalyzer.isAlwaysFiltered(tag)) {
+                continue;
+            }
+            XmlTag where = WhereClauseAnalyzer.findWhereTag(tag);
+            DomElement whereElement = null == where ? null : domManager.getDomElement(where);
+            if (null == whereElement) {
+                holder.createProblem(statement.getId(), "The " + tag.getName() + " has no where clause and touches every row of the table");
+                continue;
+            }
+            List<String> conditions = WhereClauseAnalyzer.getConditions(where);
+            LocalQuickFix[] fixes = null == conditions || conditions.isEmpty() ? LocalQuickFix.EMPTY_ARRAY
+                    : new LocalQuickFix[]{new AddWhereGuardQuickFix(where, WhereClauseAnalyzer.createGuardTest(conditions))};
+            holder.createProblem(whereElement, "The where clause is empty when every condition is false, the "
+                    + tag.getName() + " then touches every row of the table", fixes);
+        }
+    }
+
+}
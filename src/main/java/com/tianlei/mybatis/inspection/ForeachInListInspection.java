@@ -0,0 +1,105 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Lists;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlText;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.ParameterTypeResolver;
+import com.tianlei.mybatis.dom.model.Foreach;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.generate.ChunkedMethodGenerator;
+import com.tianlei.mybatis.util.JavaUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Reports IN lists built by a {@code <foreach>} over a collection parameter without an enclosing size check. Large
+ * lists exceed the driver parameter limits, and every list size is a new statement and plan.
+ */
+public class ForeachInListInspection extends DomElementsInspection<Mapper> {
+
+    private static final Pattern IN_CONTEXT = Pattern.compile("(?is).*\\bin\\s*(\\(\\s*)?$");
+
+    public ForeachInListInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        DomManager domManager = DomManager.getDomManager(domFileElement.getFile().getProject());
+        for (IdDomElement statement : domFileElement.getRootElement().getDaoElements()) {
+            XmlTag tag = statement.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            for (XmlTag child : PsiTreeUtil.findChildrenOfType(tag, XmlTag.class)) {
+                DomElement element = "foreach".equals(child.getName()) ? domManager.getDomElement(child) : null;
+                if (element instanceof Foreach) {
+                    check(statement, (Foreach) element, child, holder);
+                }
+            }
+        }
+    }
+
+    private static void check(IdDomElement statement, Foreach foreach, XmlTag tag, DomElementAnnotationHolder holder) {
+        String collection = foreach.getCollection().getStringValue();
+        if (null == collection || !isInList(foreach, tag) || hasSizeGuard(tag, collection.trim())) {
+            return;
+        }
+        PsiType type = ParameterTypeResolver.resolve(tag, collection.trim());
+        if (null != type && null == ParameterTypeResolver.getElementType(type)) {
+            return;
+        }
+        String message = "IN list over '" + collection.trim() + "'" + (null == type ? "" : " (" + type.getPresentableText() + ")")
+                + " has no size limit: long lists exceed driver parameter limits (2100 on SQL Server, 65535 on PostgreSQL)"
+                + " and every list size is a new statement to plan";
+        PsiMethod method = JavaUtils.findMethod(tag.getProject(), statement).orElse(null);
+        PsiParameter parameter = null == method ? null : ParameterTypeResolver.findParameter(method, collection.trim());
+        List<LocalQuickFix> fixes = Lists.newArrayList();
+        for (boolean padded : new boolean[]{false, true}) {
+            if (null != parameter && ChunkedMethodGenerator.isApplicable(method, parameter, padded)) {
+                fixes.add(new GenerateChunkedMethodQuickFix(method, parameter, padded));
+            }
+        }
+        holder.createProblem(foreach.getCollection(), message, fixes.toArray(LocalQuickFix.EMPTY_ARRAY));
+    }
+
+    private static boolean isInList(Foreach foreach, XmlTag tag) {
+        String separator = foreach.getSeparator().getStringValue();
+        if (null == separator || !",".equals(separator.trim())) {
+            return false;
+        }
+        PsiElement previous = tag.getPrevSibling();
+        String before = previous instanceof XmlText ? ((XmlText) previous).getValue() : "";
+        String open = foreach.getOpen().getStringValue();
+        return IN_CONTEXT.matcher(before + (null == open ? "" : open.trim())).matches();
+    }
+
+    /**
+     * @return whether an enclosing {@code <if>} or {@code <when>} bounds the size of the collection from above
+     */
+    private static boolean hasSizeGuard(XmlTag tag, String collection) {
+        Pattern guard = Pattern.compile(Pattern.quote(collection) + "\\s*\\.\\s*(size\\s*\\(\\s*\\)|length)\\s*(<|<=|lt\\b|lte\\b)");
+        for (XmlTag parent = tag.getParentTag(); null != parent; parent = parent.getParentTag()) {
+            String test = parent.getAttributeValue("test");
+            if (("if".equals(parent.getName()) || "when".equals(parent.getName())) && null != test && guard.matcher(test).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
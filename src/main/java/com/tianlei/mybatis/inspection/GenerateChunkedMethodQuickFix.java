@@ -0,0 +1,46 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.tianlei.mybatis.generate.ChunkedMethodGenerator;
+import org.jetbrains.annotations.NotNull;
+
+public class GenerateChunkedMethodQuickFix extends GenericQuickFix {
+
+    private final PsiMethod method;
+
+    private final PsiParameter parameter;
+
+    private final boolean padded;
+
+    private final String name;
+
+    public GenerateChunkedMethodQuickFix(@NotNull PsiMethod method, @NotNull PsiParameter parameter, boolean padded) {
+        this.method = method;
+        this.parameter = parameter;
+        this.padded = padded;
+        this.name = "Generate default method calling " + method.getName() + "() in chunks"
+                + (padded ? " padded to powers of two" : "");
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        if (method.isValid() && parameter.isValid()) {
+            ChunkedMethodGenerator.generate(project, method, parameter, padded);
+        }
+    }
+
+}
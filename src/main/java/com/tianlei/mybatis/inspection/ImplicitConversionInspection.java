@@ -0,0 +1,123 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.database.model.DasColumn;
+import com.intellij.database.model.DasTable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlText;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.ParameterTypeResolver;
+import com.tianlei.mybatis.analysis.TypeCategory;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.util.DbToolsUtils;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reports predicates comparing a column with a {@code #{}} parameter of another kind of type, such as a varchar
+ * column with a number, which makes MySQL and Oracle convert the column on every row instead of seeking its index.
+ * The parameter type is its {@code jdbcType} when given, else the java type of the expression, and the column type
+ * comes from the data sources.
+ */
+public class ImplicitConversionInspection extends DomElementsInspection<Mapper> {
+
+    private static final Pattern PREDICATE = Pattern.compile(
+            "(?i)(?:^|\\b(?:where|and|or|on|having)\\b|\\()\\s*([a-z_]\\w*(?:\\.[a-z_]\\w*)?)\\s*"
+                    + "(?:=|<>|!=|>=|<=|&lt;&gt;|&lt;=|&gt;=|&lt;|&gt;|<|>|\\blike\\b|\\bin\\s*\\()\\s*#\\{([^}]*)}");
+
+    private static final Pattern JDBC_TYPE = Pattern.compile("jdbcType\\s*=\\s*(\\w+)");
+
+    public ImplicitConversionInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        for (IdDomElement element : domFileElement.getRootElement().getDaoElements()) {
+            XmlTag tag = element.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            Map<String, String> aliases = null;
+            for (XmlText text : PsiTreeUtil.findChildrenOfType(tag, XmlText.class)) {
+                XmlTag context = PsiTreeUtil.getParentOfType(text, XmlTag.class);
+                if (null == context || isAssignment(context, tag)) {
+                    continue;
+                }
+                Matcher matcher = PREDICATE.matcher(text.getText());
+                while (matcher.find()) {
+                    aliases = null == aliases ? SqlTextUtils.getTableAliases(SqlTextUtils.getExpandedBody(tag)) : aliases;
+                    String message = check(tag.getProject(), aliases, context, matcher.group(1), matcher.group(2));
+                    if (null != message) {
+                        int offset = text.getTextRange().getStartOffset() - tag.getTextRange().getStartOffset();
+                        holder.createProblem(element, ProblemHighlightType.GENERIC_ERROR_OR_WARNING, message,
+                                new TextRange(offset + matcher.start(2) - 2, offset + matcher.end(2) + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the problem, null if the types match or are unknown
+     */
+    private static String check(Project project, Map<String, String> aliases, XmlTag context, String columnText, String parameter) {
+        String qualifier = columnText.contains(".") ? StringUtil.substringBefore(columnText, ".") : null;
+        String name = columnText.contains(".") ? StringUtil.substringAfterLast(columnText, ".") : columnText;
+        DasTable table = DbToolsUtils.findColumnTable(project, aliases, qualifier, name);
+        DasColumn column = null == table ? null : DbToolsUtils.findColumn(table, name);
+        if (null == column) {
+            return null;
+        }
+        String typeName = column.getDataType().typeName;
+        TypeCategory columnCategory = TypeCategory.fromJdbcType(
+                DbToolsUtils.convertTypeNameToJdbcType(typeName, column.getDataType().size, ""));
+        if (null == columnCategory) {
+            return null;
+        }
+        String expression = StringUtil.notNullize(StringUtil.substringBefore(parameter, ","), parameter).trim();
+        Matcher jdbcType = JDBC_TYPE.matcher(parameter);
+        String valueType;
+        TypeCategory valueCategory;
+        if (jdbcType.find()) {
+            valueType = "jdbcType=" + jdbcType.group(1);
+            valueCategory = TypeCategory.fromJdbcTypeName(jdbcType.group(1));
+        } else {
+            PsiType type = ParameterTypeResolver.resolve(context, expression);
+            valueType = null == type ? null : type.getPresentableText();
+            valueCategory = TypeCategory.fromJavaType(type);
+        }
+        if (null == valueCategory || !valueCategory.convertsColumnOf(columnCategory)) {
+            return null;
+        }
+        String index = DbToolsUtils.isIndexed(table, column.getName()) ? " and its index is not used" : "";
+        return "#{" + expression + "} (" + valueType + ") is compared with the " + typeName + " column "
+                + table.getName() + "." + column.getName() + ": the column is converted on every row" + index;
+    }
+
+    /**
+     * @return whether the text is in a {@code <set>} clause, where a conversion happens once per statement
+     */
+    private static boolean isAssignment(XmlTag context, XmlTag statement) {
+        for (XmlTag tag = context; null != tag && tag != statement; tag = tag.getParentTag()) {
+            if ("set".equals(tag.getName())
+                    || ("trim".equals(tag.getName()) && "set".equalsIgnoreCase(StringUtil.trim(tag.getAttributeValue("prefix"))))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
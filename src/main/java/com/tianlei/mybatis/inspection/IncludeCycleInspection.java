@@ -0,0 +1,73 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.service.IncludeGraph;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+
+/**
+ * Reports include, result map and cache-ref cycles, and statements whose include chain is deeper than allowed.
+ */
+public class IncludeCycleInspection extends DomElementsInspection<Mapper> {
+
+    public int maxDepth = 5;
+
+    public IncludeCycleInspection() {
+        super(Mapper.class);
+    }
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(number("maxDepth", "Maximum include depth", 1, 100));
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        XmlTag rootTag = domFileElement.getRootTag();
+        if (null == rootTag) {
+            return;
+        }
+        IncludeGraph graph = IncludeGraph.getInstance(domFileElement.getFile().getProject());
+        DomManager domManager = DomManager.getDomManager(domFileElement.getFile().getProject());
+        for (XmlTag tag : PsiTreeUtil.findChildrenOfType(rootTag, XmlTag.class)) {
+            String name = tag.getName();
+            if (!"include".equals(name) && !"cache-ref".equals(name) && !("resultMap".equals(name) && null != tag.getAttribute("extends"))) {
+                continue;
+            }
+            List<String> cycle = graph.findCycle(tag);
+            DomElement element = domManager.getDomElement(tag);
+            if (null != cycle && null != element) {
+                List<String> names = Lists.newArrayList();
+                for (String key : cycle) {
+                    names.add(IncludeGraph.getDisplayName(key));
+                }
+                holder.createProblem(element, "Cyclic reference: " + Joiner.on(" -> ").join(names));
+            }
+        }
+        Mapper mapper = domFileElement.getRootElement();
+        for (IdDomElement element : Lists.newArrayList(mapper.getDaoElements())) {
+            XmlTag tag = element.getXmlTag();
+            int depth = null == tag ? 0 : graph.getDepth(tag);
+            if (depth > maxDepth) {
+                holder.createProblem(element.getId(), "Include chain is " + depth + " levels deep, more than " + maxDepth);
+            }
+        }
+    }
+
+}
@@ -74,47 +74,42 @@ public class MapperMethodInspection extends MapperInspection {
 
         if (domElement instanceof Select) {
             final Select selectStatement = (Select) domElement;
-
-            if (selectStatement.getResultMap().getValue() != null) {
-                return Optional.empty();
-            }
-
-            final Optional<PsiClass> methodResultType = StatementGenerator.getSelectResultType(method);
-            final PsiClass selectResultType = selectStatement.getResultType().getValue();
             final PsiIdentifier methodName = method.getNameIdentifier();
 
-            if (methodName != null) {
-                if (methodResultType.isPresent()) {
-                    if (selectResultType == null ||
-                            (selectResultType.getQualifiedName() != null
-                                    && !selectResultType.getQualifiedName().equals(methodResultType.get().getQualifiedName())
-                                    && !selectResultType.isInheritor(methodResultType.get(), true))) {
-
-                        return Optional.of(
-                                manager.createProblemDescriptor(
-                                        methodName,
-                                        "Result type doesn't match for Select id=\"#ref\"",
-                                        new ResultTypeQuickFix(selectStatement, methodResultType.get()),
-                                        ProblemHighlightType.GENERIC_ERROR,
-                                        isOnTheFly));
-
-                    }
-                }
-                if (!methodResultType.isPresent() && selectResultType != null) {
-                    return Optional.of(
-                            manager.createProblemDescriptor(
-                                    methodName,
-                                    "Result type doesn't match for Select id=\"#ref\"",
-                                    (LocalQuickFix) null,
-                                    ProblemHighlightType.GENERIC_ERROR,
-                                    isOnTheFly));
-                }
+            if (methodName != null && hasResultTypeMismatch(method, selectStatement)) {
+                final Optional<PsiClass> methodResultType = StatementGenerator.getSelectResultType(method);
+                return Optional.of(
+                        manager.createProblemDescriptor(
+                                methodName,
+                                "Result type doesn't match for Select id=\"#ref\"",
+                                methodResultType.isPresent() ? new ResultTypeQuickFix(selectStatement, methodResultType.get()) : null,
+                                ProblemHighlightType.GENERIC_ERROR,
+                                isOnTheFly));
             }
         }
 
         return Optional.empty();
     }
 
+    /**
+     * @return whether the result type of the select can not hold what the method returns, selects mapped through a
+     * result map are never reported
+     */
+    public static boolean hasResultTypeMismatch(@NotNull PsiMethod method, @NotNull Select select) {
+        if (select.getResultMap().getValue() != null) {
+            return false;
+        }
+        final Optional<PsiClass> methodResultType = StatementGenerator.getSelectResultType(method);
+        final PsiClass selectResultType = select.getResultType().getValue();
+        if (methodResultType.isPresent()) {
+            return selectResultType == null ||
+                    (selectResultType.getQualifiedName() != null
+                            && !selectResultType.getQualifiedName().equals(methodResultType.get().getQualifiedName())
+                            && !selectResultType.isInheritor(methodResultType.get(), true));
+        }
+        return selectResultType != null;
+    }
+
     private Optional<ProblemDescriptor> checkStatementExists(
             final PsiMethod method,
             final InspectionManager manager,
@@ -0,0 +1,49 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.dom.model.Foreach;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.refactoring.BatchStatementRewriter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reports {@code <foreach>} tags running one insert or update per element, separated by {@code ;}. They need
+ * {@code allowMultiQueries} and send one statement per element.
+ */
+public class MultiStatementForeachInspection extends DomElementsInspection<Mapper> {
+
+    public MultiStatementForeachInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        DomManager domManager = DomManager.getDomManager(domFileElement.getFile().getProject());
+        for (IdDomElement statement : domFileElement.getRootElement().getDaoElements()) {
+            XmlTag tag = statement.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            for (XmlTag child : PsiTreeUtil.findChildrenOfType(tag, XmlTag.class)) {
+                DomElement element = "foreach".equals(child.getName()) ? domManager.getDomElement(child) : null;
+                if (element instanceof Foreach && BatchStatementRewriter.isStatementPerElement(child)) {
+                    String body = BatchStatementRewriter.createBody(tag, child);
+                    String kind = "insert".equals(tag.getName()) ? "a multi-row INSERT ... VALUES"
+                            : "update".equals(tag.getName()) ? "one UPDATE with a CASE over the key" : "one statement";
+                    holder.createProblem(((Foreach) element).getSeparator(),
+                            "Foreach runs one statement per element: it needs allowMultiQueries and sends N statements, use " + kind,
+                            null == body ? LocalQuickFix.EMPTY_ARRAY : new LocalQuickFix[]{new RewriteBatchStatementQuickFix(tag, body)});
+                }
+            }
+        }
+    }
+
+}
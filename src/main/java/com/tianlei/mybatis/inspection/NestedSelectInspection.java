@@ -0,0 +1,52 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.NestedSelectAnalyzer;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.dom.model.NestedSelectGroup;
+import com.tianlei.mybatis.dom.model.ResultMap;
+import com.tianlei.mybatis.refactoring.NestedSelectJoinRewriter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reports nested selects in result maps, which run one more query per row of the parent result. Eager collections
+ * are warnings, lazy associations only weak warnings since they run when the property is read.
+ */
+public class NestedSelectInspection extends DomElementsInspection<Mapper> {
+
+    public NestedSelectInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        for (ResultMap resultMap : domFileElement.getRootElement().getResultMaps()) {
+            for (NestedSelectGroup mapping : NestedSelectAnalyzer.findNestedSelects(resultMap)) {
+                XmlTag select = NestedSelectAnalyzer.getSelectTag(mapping);
+                if (null == select) {
+                    continue;
+                }
+                boolean collection = NestedSelectAnalyzer.isCollection(mapping);
+                boolean lazy = NestedSelectAnalyzer.isLazy(mapping);
+                int transitive = NestedSelectAnalyzer.countTransitiveSelects(select);
+                StringBuilder message = new StringBuilder("N+1 query: '").append(select.getAttributeValue("id"))
+                        .append("' runs once per parent row");
+                if (transitive > 0) {
+                    message.append(", and its rows run ").append(transitive).append(" more nested select")
+                            .append(1 == transitive ? "" : "s").append(" each");
+                }
+                message.append(lazy ? ", when the property is first read" : ", eagerly");
+                NestedSelectJoinRewriter.JoinPlan plan = NestedSelectJoinRewriter.plan(mapping);
+                LocalQuickFix[] fixes = null == plan ? LocalQuickFix.EMPTY_ARRAY : new LocalQuickFix[]{new NestedSelectToJoinQuickFix(mapping, plan)};
+                HighlightSeverity severity = lazy && !collection ? HighlightSeverity.WEAK_WARNING : HighlightSeverity.WARNING;
+                holder.createProblem(mapping.getSelect(), severity, message.toString(), fixes);
+            }
+        }
+    }
+
+}
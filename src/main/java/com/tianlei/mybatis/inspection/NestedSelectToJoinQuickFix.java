@@ -0,0 +1,38 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.tianlei.mybatis.dom.model.NestedSelectGroup;
+import com.tianlei.mybatis.refactoring.NestedSelectJoinRewriter;
+import org.jetbrains.annotations.NotNull;
+
+public class NestedSelectToJoinQuickFix extends GenericQuickFix {
+
+    private final NestedSelectGroup mapping;
+
+    private final NestedSelectJoinRewriter.JoinPlan plan;
+
+    public NestedSelectToJoinQuickFix(@NotNull NestedSelectGroup mapping, @NotNull NestedSelectJoinRewriter.JoinPlan plan) {
+        this.mapping = mapping;
+        this.plan = plan;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Convert to join with nested result map";
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        if (mapping.isValid()) {
+            NestedSelectJoinRewriter.rewrite(project, mapping, plan);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Iterables;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.database.model.DasTable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlText;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.ParameterTypeResolver;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.util.DbToolsUtils;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reports predicates an index can not seek on: a LIKE pattern starting with a wildcard, a function applied to a
+ * column before comparing it, and sorting by a random value. When the data sources know the table, the message says
+ * whether the column is indexed. {@code DATE(column) = #{value}} can be rewritten into a range, which starts at
+ * {@code DATE(#{value})} unless the parameter is a {@code LocalDate} or a {@code java.sql.Date}.
+ */
+public class NonSargablePredicateInspection extends DomElementsInspection<Mapper> {
+
+    private static final String COLUMN = "([a-z_]\\w*(?:\\.[a-z_]\\w*)?)";
+
+    private static final Pattern LEADING_WILDCARD = Pattern.compile(
+            "(?i)" + COLUMN + "\\s+(?:not\\s+)?like\\s+(?:concat\\s*\\(\\s*'%'|'%|\"%|'%'\\s*\\|\\|)");
+
+    private static final Pattern FUNCTION_ON_COLUMN = Pattern.compile(
+            "(?i)\\b(date|year|month|day|lower|upper|trim|ltrim|rtrim|substr|substring|left|right|date_format|to_char|to_date"
+                    + "|ifnull|nvl|coalesce|cast|convert|abs|round|trunc)\\s*\\(\\s*" + COLUMN
+                    + "\\s*(?:(?:,|\\bas\\b)[^()]*)?\\)\\s*(=|<>|!=|>=|<=|&lt;=|&gt;=|&lt;&gt;|&lt;|&gt;|>|<|\\bin\\b|\\blike\\b|\\bbetween\\b)");
+
+    private static final Pattern DATE_EQUALS = Pattern.compile("(?i)date\\s*\\(\\s*" + COLUMN + "\\s*\\)\\s*=\\s*(#\\{[^}]*})");
+
+    private static final Pattern RANDOM_ORDER = Pattern.compile(
+            "(?i)\\border\\s+by\\s+(?:rand|random|newid|dbms_random\\.value)\\b\\s*(?:\\(\\s*\\))?");
+
+    public NonSargablePredicateInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        Mapper mapper = domFileElement.getRootElement();
+        for (IdDomElement element : Iterables.concat(mapper.getDaoElements(), mapper.getSqls())) {
+            XmlTag tag = element.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            Map<String, String> aliases = null;
+            for (XmlText text : PsiTreeUtil.findChildrenOfType(tag, XmlText.class)) {
+                String value = text.getText();
+                int offset = text.getTextRange().getStartOffset() - tag.getTextRange().getStartOffset();
+                Matcher like = LEADING_WILDCARD.matcher(value);
+                while (like.find()) {
+                    aliases = null == aliases ? SqlTextUtils.getTableAliases(SqlTextUtils.getExpandedBody(tag)) : aliases;
+                    holder.createProblem(element, ProblemHighlightType.GENERIC_ERROR_OR_WARNING,
+                            "LIKE with a leading wildcard can not use " + describeIndex(tag.getProject(), aliases, like.group(1))
+                                    + ": use a prefix match, or a full text index",
+                            new TextRange(offset + like.start(), offset + like.end()));
+                }
+                Matcher function = FUNCTION_ON_COLUMN.matcher(value);
+                while (function.find()) {
+                    aliases = null == aliases ? SqlTextUtils.getTableAliases(SqlTextUtils.getExpandedBody(tag)) : aliases;
+                    String name = function.group(1).toUpperCase();
+                    Matcher date = DATE_EQUALS.matcher(value).region(function.start(), value.length());
+                    String column = function.group(2);
+                    String message = name + "(" + column + ") can not use " + describeIndex(tag.getProject(), aliases, column);
+                    if (date.lookingAt()) {
+                        String less = value.contains("<![CDATA[") ? " < " : " &lt; ";
+                        String start = isDateOnly(text, date.group(2)) ? date.group(2) : "DATE(" + date.group(2) + ")";
+                        String rewrite = column + " >= " + start + " and " + column + less + "date_add(" + start + ", interval 1 day)";
+                        holder.createProblem(element, ProblemHighlightType.GENERIC_ERROR_OR_WARNING,
+                                message + ": compare the column with a range instead",
+                                new TextRange(offset + date.start(), offset + date.end()),
+                                new ReplaceRangeQuickFix("Replace with " + StringUtil.unescapeXmlEntities(rewrite), rewrite));
+                    } else {
+                        TextRange range = new TextRange(offset + function.start(), offset + function.end());
+                        holder.createProblem(element, ProblemHighlightType.GENERIC_ERROR_OR_WARNING,
+                                message + ": apply the function to the compared value, or index the expression", range);
+                    }
+                }
+                Matcher random = RANDOM_ORDER.matcher(value);
+                while (random.find()) {
+                    holder.createProblem(element, ProblemHighlightType.GENERIC_ERROR_OR_WARNING,
+                            "Sorting by a random value reads and sorts every row: pick random keys or a random offset instead",
+                            new TextRange(offset + random.start(), offset + random.end()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the bound parameter holds a date without a time part, which can start the range as it is
+     */
+    private static boolean isDateOnly(XmlText text, String parameter) {
+        XmlTag context = text.getParentTag();
+        String expression = StringUtil.substringBefore(parameter.substring(2, parameter.length() - 1) + ",", ",").trim();
+        PsiType type = null == context || expression.isEmpty() ? null : ParameterTypeResolver.resolve(context, expression);
+        return null != type && (type.equalsToText(LocalDate.class.getName()) || type.equalsToText(java.sql.Date.class.getName()));
+    }
+
+    private static String describeIndex(Project project, Map<String, String> aliases, String column) {
+        String qualifier = column.contains(".") ? StringUtil.substringBefore(column, ".") : null;
+        String name = column.contains(".") ? StringUtil.substringAfterLast(column, ".") : column;
+        DasTable table = DbToolsUtils.findColumnTable(project, aliases, qualifier, name);
+        if (null == table || null == DbToolsUtils.findColumn(table, name)) {
+            return "an index on " + column;
+        }
+        String qualified = table.getName() + "." + name;
+        return DbToolsUtils.isIndexed(table, name) ? "the index on " + qualified : "an index on " + qualified + " (the column is not indexed)";
+    }
+
+}
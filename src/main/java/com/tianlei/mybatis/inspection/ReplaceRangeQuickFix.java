@@ -0,0 +1,44 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Replaces the highlighted range of the problem by the given text.
+ */
+public class ReplaceRangeQuickFix extends GenericQuickFix {
+
+    private final String name;
+
+    private final String replacement;
+
+    public ReplaceRangeQuickFix(@NotNull String name, @NotNull String replacement) {
+        this.name = name;
+        this.replacement = replacement;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        PsiElement element = descriptor.getPsiElement();
+        TextRange range = descriptor.getTextRangeInElement();
+        Document document = null == element ? null : PsiDocumentManager.getInstance(project).getDocument(element.getContainingFile());
+        if (null == document || null == range) {
+            return;
+        }
+        TextRange target = range.shiftRight(element.getTextRange().getStartOffset());
+        document.replaceString(target.getStartOffset(), target.getEndOffset(), replacement);
+        PsiDocumentManager.getInstance(project).commitDocument(document);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.ImmutableSet;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.xml.XmlTag;
+import com.tianlei.mybatis.dom.model.Result;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * Turns a {@code <result>} into an {@code <id>}, moved ahead of the results, associations and collections as the
+ * result map DTD requires.
+ */
+public class ResultToIdQuickFix extends GenericQuickFix {
+
+    private static final Set<String> AFTER_IDS = ImmutableSet.of("result", "association", "collection", "discriminator");
+
+    private final Result result;
+
+    public ResultToIdQuickFix(@NotNull Result result) {
+        this.result = result;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Replace <result> with <id>";
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        XmlTag tag = result.getXmlTag();
+        XmlTag parent = null == tag || !tag.isValid() ? null : tag.getParentTag();
+        if (null == parent) {
+            return;
+        }
+        XmlTag anchor = null;
+        for (XmlTag subTag : parent.getSubTags()) {
+            if (AFTER_IDS.contains(subTag.getName())) {
+                anchor = subTag;
+                break;
+            }
+        }
+        if (tag == anchor) {
+            tag.setName("id");
+            return;
+        }
+        XmlTag id = (XmlTag) tag.copy();
+        id.setName("id");
+        parent.addBefore(id, anchor);
+        tag.delete();
+    }
+
+}
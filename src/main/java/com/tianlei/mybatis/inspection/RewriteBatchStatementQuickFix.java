@@ -0,0 +1,41 @@
+package com.tianlei.mybatis.inspection;
+
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.xml.XmlTag;
+import com.tianlei.mybatis.refactoring.BatchStatementRewriter;
+import org.jetbrains.annotations.NotNull;
+
+public class RewriteBatchStatementQuickFix extends GenericQuickFix {
+
+    private final SmartPsiElementPointer<XmlTag> statement;
+
+    private final String body;
+
+    public RewriteBatchStatementQuickFix(@NotNull XmlTag statement, @NotNull String body) {
+        this.statement = SmartPointerManager.createPointer(statement);
+        this.body = body;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return body.startsWith("update") ? "Rewrite into one update with case" : "Rewrite into one multi-row insert";
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @Override
+    public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+        XmlTag tag = statement.getElement();
+        if (null != tag) {
+            BatchStatementRewriter.rewrite(project, tag, body);
+        }
+    }
+
+}
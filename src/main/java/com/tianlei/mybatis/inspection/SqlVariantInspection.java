@@ -0,0 +1,52 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Lists;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.SqlVariantCounter;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import org.jetbrains.annotations.NotNull;
+
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+
+/**
+ * Reports statements whose dynamic tags can build more distinct sql strings than allowed, each one being a separate
+ * prepared statement and plan in the database statement cache.
+ */
+public class SqlVariantInspection extends DomElementsInspection<Mapper> {
+
+    public int maxVariants = 64;
+
+    public SqlVariantInspection() {
+        super(Mapper.class);
+    }
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(number("maxVariants", "Maximum distinct sql strings per statement", 1, 1_000_000));
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        for (IdDomElement element : Lists.newArrayList(domFileElement.getRootElement().getDaoElements())) {
+            XmlTag tag = element.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            SqlVariantCounter.Variants variants = SqlVariantCounter.count(tag);
+            if (variants.getCount() > maxVariants) {
+                String count = Long.MAX_VALUE == variants.getCount() ? "too many" : "up to " + variants.getCount();
+                String suffix = 0 == variants.getForeachCount() ? "" : ", for every foreach collection size";
+                holder.createProblem(element.getId(), "Statement can build " + count + " distinct sql strings" + suffix
+                        + ", more than " + maxVariants);
+            }
+        }
+    }
+
+}
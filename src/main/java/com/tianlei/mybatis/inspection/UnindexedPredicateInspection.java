@@ -0,0 +1,105 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.intellij.codeInspection.options.OptPane;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.PredicateColumns;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.intellij.codeInspection.options.OptPane.number;
+import static com.intellij.codeInspection.options.OptPane.pane;
+
+/**
+ * Reports statements filtering or joining a table on columns none of which leads an index or key of the table in
+ * the data sources, and statements sorting a table they do not filter on a column no index leads with. Only columns
+ * used by enough statements of the mapper are reported.
+ */
+public class UnindexedPredicateInspection extends DomElementsInspection<Mapper> {
+
+    public int minStatements = 2;
+
+    public UnindexedPredicateInspection() {
+        super(Mapper.class);
+    }
+
+    @NotNull
+    @Override
+    public OptPane getOptionsPane() {
+        return pane(number("minStatements", "Minimum statements of the mapper using the column", 1, 10_000));
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        Map<IdDomElement, List<PredicateColumns.Use>> uses = Maps.newLinkedHashMap();
+        Map<String, Integer> counts = Maps.newHashMap();
+        for (IdDomElement statement : domFileElement.getRootElement().getDaoElements()) {
+            XmlTag tag = statement.getXmlTag();
+            if (null == tag) {
+                continue;
+            }
+            List<PredicateColumns.Use> statementUses = PredicateColumns.collect(tag);
+            uses.put(statement, statementUses);
+            Set<String> columns = Sets.newHashSet();
+            for (PredicateColumns.Use use : statementUses) {
+                columns.add(use.getQualifiedName());
+            }
+            for (String column : columns) {
+                counts.merge(column, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<IdDomElement, List<PredicateColumns.Use>> entry : uses.entrySet()) {
+            Multimap<String, PredicateColumns.Use> predicates = LinkedHashMultimap.create();
+            Multimap<String, PredicateColumns.Use> sorts = LinkedHashMultimap.create();
+            for (PredicateColumns.Use use : entry.getValue()) {
+                (PredicateColumns.Clause.ORDER == use.getClause() ? sorts : predicates).put(use.getTable().getName(), use);
+            }
+            for (String table : predicates.keySet()) {
+                List<String> columns = getUnindexed(predicates.get(table), counts);
+                if (null != columns) {
+                    holder.createProblem(entry.getKey().getId(), "No index of " + table + " leads with " + String.join(", ", columns)
+                            + ": the statement scans " + table);
+                }
+            }
+            for (String table : sorts.keySet()) {
+                List<String> columns = predicates.containsKey(table) ? null : getUnindexed(sorts.get(table), counts);
+                if (null != columns) {
+                    holder.createProblem(entry.getKey().getId(), "No index of " + table + " leads with " + columns.get(0)
+                            + ": ORDER BY reads and sorts every row of " + table);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the frequently used columns with their usage count, null if one of the columns leads an index or none
+     * is used often enough
+     */
+    private List<String> getUnindexed(Collection<PredicateColumns.Use> uses, Map<String, Integer> counts) {
+        List<String> result = Lists.newArrayList();
+        for (PredicateColumns.Use use : uses) {
+            if (use.isIndexed()) {
+                return null;
+            }
+            int count = counts.getOrDefault(use.getQualifiedName(), 0);
+            if (count >= minStatements) {
+                result.add(use.getColumn() + " (used by " + count + " statements)");
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.tianlei.mybatis.inspection;
+
+import com.google.common.collect.Iterables;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.highlighting.DomElementAnnotationHolder;
+import com.intellij.util.xml.highlighting.DomElementsInspection;
+import com.tianlei.mybatis.analysis.UnusedStatementDetector;
+import com.tianlei.mybatis.dom.model.IdDomElement;
+import com.tianlei.mybatis.dom.model.Mapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+public class UnusedStatementInspection extends DomElementsInspection<Mapper> {
+
+    public UnusedStatementInspection() {
+        super(Mapper.class);
+    }
+
+    @Override
+    public void checkFileElement(@NotNull DomFileElement<Mapper> domFileElement, @NotNull DomElementAnnotationHolder holder) {
+        Set<XmlTag> unused = UnusedStatementDetector.findUnusedTags(domFileElement.getFile());
+        if (unused.isEmpty()) {
+            return;
+        }
+        Mapper mapper = domFileElement.getRootElement();
+        for (IdDomElement element : Iterables.concat(mapper.getDaoElements(), mapper.getSqls(), mapper.getResultMaps())) {
+            XmlTag tag = element.getXmlTag();
+            if (null != tag && unused.contains(tag)) {
+                holder.createProblem(element.getId(), ProblemHighlightType.LIKE_UNUSED_SYMBOL,
+                        UnusedStatementDetector.getDescription(tag), null, new DeleteTagQuickFix());
+            }
+        }
+    }
+
+}
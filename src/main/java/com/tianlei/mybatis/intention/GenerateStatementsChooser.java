@@ -0,0 +1,23 @@
+package com.tianlei.mybatis.intention;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+
+public class GenerateStatementsChooser extends JavaFileIntentionChooser {
+
+    public static final JavaFileIntentionChooser INSTANCE = new GenerateStatementsChooser();
+
+    @Override
+    public boolean isAvailable(@NotNull PsiElement element) {
+        if (isPositionOfInterfaceDeclaration(element)) {
+            PsiClass clazz = PsiTreeUtil.getParentOfType(element, PsiClass.class);
+            if (null != clazz) {
+                return isTargetPresentInXml(clazz);
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.tianlei.mybatis.intention;
+
+import com.intellij.codeInsight.hint.HintManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.CommonProcessors.CollectProcessor;
+import com.intellij.util.IncorrectOperationException;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.generate.StatementGenerator;
+import com.tianlei.mybatis.service.JavaService;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public class GenerateStatementsIntention extends GenericIntention {
+
+    public GenerateStatementsIntention() {
+        super(GenerateStatementsChooser.INSTANCE);
+    }
+
+    @NotNull
+    @Override
+    public String getText() {
+        return "[Mybatis] Generate all missing statements";
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+
+    @Override
+    public void invoke(@NotNull final Project project, Editor editor, PsiFile file) throws IncorrectOperationException {
+        PsiElement element = file.findElementAt(editor.getCaretModel().getOffset());
+        PsiClass clazz = PsiTreeUtil.getParentOfType(element, PsiClass.class);
+        if (null == clazz) {
+            return;
+        }
+        CollectProcessor<Mapper> processor = new CollectProcessor<>();
+        JavaService.getInstance(project).process(clazz, processor);
+        List<PsiMethod> methods = StatementGenerator.getMissingMethods(clazz, processor.getResults());
+        if (methods.isEmpty()) {
+            HintManager.getInstance().showInformationHint(editor, "Every method already has a statement");
+            return;
+        }
+        StatementGenerator.applyGenerateAll(clazz, processor.getResults(), methods);
+    }
+
+}
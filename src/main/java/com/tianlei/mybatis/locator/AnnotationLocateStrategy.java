@@ -0,0 +1,148 @@
+package com.tianlei.mybatis.locator;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.intellij.codeInsight.AnnotationUtil;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.spring.CommonSpringModel;
+import com.intellij.spring.SpringManager;
+import com.intellij.spring.model.SpringBeanPointer;
+import com.intellij.spring.model.utils.SpringPropertyUtils;
+import com.intellij.spring.model.xml.beans.SpringPropertyDefinition;
+import com.tianlei.mybatis.annotation.Annotation;
+import com.tianlei.mybatis.util.JavaUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Locates mappers annotated with {@code @Mapper} or living under the base packages declared by
+ * {@code @MapperScan} and {@code MapperScannerConfigurer} beans.
+ */
+public class AnnotationLocateStrategy extends LocateStrategy {
+
+    private static final Key<CachedValue<Set<String>>> BASE_PACKAGES = Key.create("mybatis.mapper.scan.packages");
+
+    private static final String MAPPER_SCANNER_CLASS = "org.mybatis.spring.mapper.MapperScannerConfigurer";
+
+    private static final String MAPPER_SCANNER_PROPERTY = "basePackage";
+
+    private static final Splitter PACKAGE_SPLITTER = Splitter.onPattern("[,; \t\n]").omitEmptyStrings().trimResults();
+
+    @Override
+    public boolean apply(@NotNull PsiClass clazz) {
+        if (JavaUtils.isAnnotationPresent(clazz, Annotation.MAPPER)) {
+            return true;
+        }
+        String qualifiedName = clazz.getQualifiedName();
+        if (null == qualifiedName) {
+            return false;
+        }
+        for (String pkg : getBasePackages(clazz.getProject())) {
+            if (qualifiedName.startsWith(pkg) && qualifiedName.length() > pkg.length() && qualifiedName.charAt(pkg.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    public static Set<String> getBasePackages(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, BASE_PACKAGES,
+                () -> CachedValueProvider.Result.create(collectBasePackages(project), PsiModificationTracker.getInstance(project)),
+                false);
+    }
+
+    @NotNull
+    private static Set<String> collectBasePackages(@NotNull Project project) {
+        Set<String> result = Sets.newHashSet();
+        collectMapperScanPackages(project, result);
+        collectScannerConfigurerPackages(project, result);
+        return ImmutableSet.copyOf(result);
+    }
+
+    private static void collectMapperScanPackages(@NotNull Project project, @NotNull Set<String> result) {
+        Optional<PsiClass> mapperScan = Annotation.MAPPER_SCAN.toPsiClass(project);
+        if (!mapperScan.isPresent()) {
+            return;
+        }
+        for (PsiClass config : AnnotatedElementsSearch.searchPsiClasses(mapperScan.get(), GlobalSearchScope.projectScope(project)).findAll()) {
+            ProgressManager.checkCanceled();
+            Optional<PsiAnnotation> annotation = JavaUtils.getPsiAnnotation(config, Annotation.MAPPER_SCAN);
+            if (!annotation.isPresent()) {
+                continue;
+            }
+            addStringValues(project, annotation.get().findDeclaredAttributeValue("value"), result);
+            addStringValues(project, annotation.get().findDeclaredAttributeValue("basePackages"), result);
+            for (PsiAnnotationMemberValue value : AnnotationUtil.arrayAttributeValues(annotation.get().findDeclaredAttributeValue("basePackageClasses"))) {
+                if (value instanceof PsiClassObjectAccessExpression) {
+                    PsiType type = ((PsiClassObjectAccessExpression) value).getOperand().getType();
+                    PsiClass clazz = type instanceof PsiClassType ? ((PsiClassType) type).resolve() : null;
+                    if (null != clazz && clazz.getContainingFile() instanceof PsiJavaFile) {
+                        result.add(((PsiJavaFile) clazz.getContainingFile()).getPackageName());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addStringValues(@NotNull Project project, @Nullable PsiAnnotationMemberValue attribute, @NotNull Set<String> result) {
+        PsiConstantEvaluationHelper helper = JavaPsiFacade.getInstance(project).getConstantEvaluationHelper();
+        for (PsiAnnotationMemberValue value : AnnotationUtil.arrayAttributeValues(attribute)) {
+            Object constant = helper.computeConstantExpression(value);
+            if (constant instanceof String) {
+                addPackages((String) constant, result);
+            }
+        }
+    }
+
+    private static void collectScannerConfigurerPackages(@NotNull Project project, @NotNull Set<String> result) {
+        Optional<PsiClass> scannerClazz = JavaUtils.findClazz(project, MAPPER_SCANNER_CLASS);
+        if (!scannerClazz.isPresent()) {
+            return;
+        }
+        SpringManager springManager = SpringManager.getInstance(project);
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            for (CommonSpringModel springModel : springManager.getCombinedModel(module).getRelatedModels()) {
+                for (Object domBean : springModel.getAllCommonBeans()) {
+                    ProgressManager.checkCanceled();
+                    SpringBeanPointer pointer = (SpringBeanPointer) domBean;
+                    PsiClass beanClass = pointer.getBeanClass();
+                    if (beanClass != null && beanClass.equals(scannerClazz.get())) {
+                        SpringPropertyDefinition basePackage = SpringPropertyUtils.findPropertyByName(pointer.getSpringBean(), MAPPER_SCANNER_PROPERTY);
+                        if (basePackage != null) {
+                            String value = basePackage.getValueElement().getStringValue();
+                            if (value != null) {
+                                addPackages(value, result);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addPackages(@NotNull String value, @NotNull Set<String> result) {
+        for (String pkg : PACKAGE_SPLITTER.split(value)) {
+            // placeholders and wildcards cannot be matched by prefix
+            if (!pkg.contains("$") && !pkg.contains("*")) {
+                result.add(pkg);
+            }
+        }
+    }
+
+}
@@ -1,10 +1,13 @@
 package com.tianlei.mybatis.locator;
 
+import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.psi.PsiClass;
 import org.jetbrains.annotations.NotNull;
 
 public abstract class LocateStrategy {
 
+    public static final ExtensionPointName<LocateStrategy> EP_NAME = ExtensionPointName.create("com.tianlei.plugin.mybatis.locateStrategy");
+
     public abstract boolean apply(@NotNull PsiClass clazz);
 
 }
@@ -1,5 +1,6 @@
 package com.tianlei.mybatis.locator;
 
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
@@ -9,8 +10,6 @@ import org.jetbrains.annotations.Nullable;
 
 public class MapperLocator {
 
-    public static LocateStrategy dfltLocateStrategy = new PackageLocateStrategy();
-
     public static MapperLocator getInstance(@NotNull Project project) {
         return project.getService(MapperLocator.class);
     }
@@ -19,8 +18,20 @@ public class MapperLocator {
         return null != method && process(method.getContainingClass());
     }
 
+    /**
+     * Asks the registered {@link LocateStrategy locate strategies} in order, the first one accepting the class wins.
+     */
     public boolean process(@Nullable PsiClass clazz) {
-        return null != clazz && JavaUtils.isElementWithinInterface(clazz) && dfltLocateStrategy.apply(clazz);
+        if (null == clazz || !JavaUtils.isElementWithinInterface(clazz)) {
+            return false;
+        }
+        for (LocateStrategy strategy : LocateStrategy.EP_NAME.getExtensionList()) {
+            ProgressManager.checkCanceled();
+            if (strategy.apply(clazz)) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
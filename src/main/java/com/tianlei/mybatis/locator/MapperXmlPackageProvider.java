@@ -1,6 +1,7 @@
 package com.tianlei.mybatis.locator;
 
 import com.google.common.collect.Sets;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
@@ -21,6 +22,7 @@ public class MapperXmlPackageProvider extends PackageProvider {
         Collection<Mapper> mappers = MapperUtils.findMappers(project);
         JavaPsiFacade javaPsiFacade = JavaPsiFacade.getInstance(project);
         for (Mapper mapper : mappers) {
+            ProgressManager.checkCanceled();
             String namespace = MapperUtils.getNamespace(mapper);
             PsiClass clazz = javaPsiFacade.findClass(namespace, GlobalSearchScope.allScope(project));
             if (null != clazz) {
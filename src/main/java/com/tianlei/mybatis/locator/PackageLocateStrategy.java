@@ -1,25 +1,47 @@
 package com.tianlei.mybatis.locator;
 
-import com.intellij.psi.JavaPsiFacade;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaFile;
 import com.intellij.psi.PsiPackage;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Set;
+
 public class PackageLocateStrategy extends LocateStrategy {
 
+    private static final Key<CachedValue<Set<String>>> MAPPER_PACKAGES = Key.create("mybatis.mapper.xml.packages");
+
     private PackageProvider provider = new MapperXmlPackageProvider();
 
     @Override
     public boolean apply(@NotNull PsiClass clazz) {
-        String packageName = ((PsiJavaFile) clazz.getContainingFile()).getPackageName();
-        PsiPackage pkg = JavaPsiFacade.getInstance(clazz.getProject()).findPackage(packageName);
-        for (PsiPackage tmp : provider.getPackages(clazz.getProject())) {
-            if (tmp.equals(pkg)) {
-                return true;
-            }
+        PsiFile file = clazz.getContainingFile();
+        if (!(file instanceof PsiJavaFile)) {
+            return false;
         }
-        return false;
+        return getPackages(clazz.getProject()).contains(((PsiJavaFile) file).getPackageName());
+    }
+
+    @NotNull
+    private Set<String> getPackages(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, MAPPER_PACKAGES, () -> {
+            Set<String> result = Sets.newHashSet();
+            for (PsiPackage pkg : provider.getPackages(project)) {
+                ProgressManager.checkCanceled();
+                result.add(pkg.getQualifiedName());
+            }
+            return CachedValueProvider.Result.create(ImmutableSet.copyOf(result), PsiModificationTracker.getInstance(project));
+        }, false);
     }
 
 }
@@ -0,0 +1,40 @@
+package com.tianlei.mybatis.provider;
+
+import com.intellij.lang.documentation.AbstractDocumentationProvider;
+import com.intellij.lang.documentation.DocumentationMarkup;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlTag;
+import com.tianlei.mybatis.analysis.DynamicSqlRenderer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Quick documentation for mapper statements and sql fragments, showing the body with every include expanded.
+ */
+public class StatementDocumentationProvider extends AbstractDocumentationProvider {
+
+    @Nullable
+    @Override
+    public PsiElement getCustomDocumentationElement(@NotNull Editor editor, @NotNull PsiFile file,
+                                                    @Nullable PsiElement contextElement, int targetOffset) {
+        XmlTag tag = DynamicSqlRenderer.findRenderableTag(contextElement);
+        return null != tag && null != contextElement && contextElement.getParent() == tag ? tag : null;
+    }
+
+    @Nullable
+    @Override
+    public String generateDoc(PsiElement element, @Nullable PsiElement originalElement) {
+        if (!(element instanceof XmlTag) || element != DynamicSqlRenderer.findRenderableTag(element)) {
+            return null;
+        }
+        XmlTag tag = (XmlTag) element;
+        String header = "<" + tag.getName() + " id=\"" + StringUtil.notNullize(tag.getAttributeValue("id")) + "\">";
+        return DocumentationMarkup.DEFINITION_START + StringUtil.escapeXmlEntities(header) + DocumentationMarkup.DEFINITION_END
+                + DocumentationMarkup.CONTENT_START + "<pre>" + StringUtil.escapeXmlEntities(DynamicSqlRenderer.renderStatic(tag))
+                + "</pre>" + DocumentationMarkup.CONTENT_END;
+    }
+
+}
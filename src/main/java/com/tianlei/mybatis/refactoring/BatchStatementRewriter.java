@@ -0,0 +1,161 @@
+package com.tianlei.mybatis.refactoring;
+
+import com.google.common.collect.Lists;
+import com.intellij.database.model.DasColumn;
+import com.intellij.database.model.DasTable;
+import com.intellij.database.util.DasUtil;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlTagChild;
+import com.intellij.psi.xml.XmlText;
+import com.tianlei.mybatis.util.DbToolsUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites a statement made of one {@code <foreach separator=";">} running an insert or an update per element into a
+ * single statement: a multi-row {@code INSERT ... VALUES (...), (...)}, or an {@code UPDATE} setting every column with
+ * a {@code CASE} over the key and restricted to the keys of the collection.
+ */
+public final class BatchStatementRewriter {
+
+    private static final Pattern INSERT = Pattern.compile(
+            "^insert\\s+into\\s+([\\w.`\"]+)\\s*(?:\\(([^)]*)\\))?\\s*values\\s*\\((.*)\\)\\s*;?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern UPDATE = Pattern.compile(
+            "^update\\s+([\\w.`\"]+)\\s+set\\s+(.+?)\\s+where\\s+([\\w.`\"]+)\\s*=\\s*(#\\{[^}]*})\\s*;?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern ASSIGNMENT = Pattern.compile("^([\\w.`\"]+)\\s*=\\s*(.+)$", Pattern.DOTALL);
+
+    private BatchStatementRewriter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return whether the foreach runs a separate statement per element
+     */
+    public static boolean isStatementPerElement(@NotNull XmlTag foreach) {
+        String separator = foreach.getAttributeValue("separator");
+        return null != separator && separator.contains(";");
+    }
+
+    /**
+     * @return the body the statement is rewritten to, null if its only content is not a foreach holding a plain
+     * insert or an update by key
+     */
+    @Nullable
+    public static String createBody(@NotNull XmlTag statement, @NotNull XmlTag foreach) {
+        if (foreach.getParentTag() != statement || 0 != foreach.getSubTags().length) {
+            return null;
+        }
+        for (XmlTagChild child : statement.getValue().getChildren()) {
+            if (child != foreach && !(child instanceof XmlText && ((XmlText) child).getText().trim().isEmpty())) {
+                return null;
+            }
+        }
+        String body = foreach.getValue().getText().trim();
+        Matcher insert = INSERT.matcher(body);
+        if (insert.matches()) {
+            return createInsert(statement, foreach, insert);
+        }
+        Matcher update = UPDATE.matcher(body);
+        return update.matches() ? createUpdate(foreach, update) : null;
+    }
+
+    public static void rewrite(@NotNull Project project, @NotNull XmlTag statement, @NotNull String body) {
+        WriteCommandAction.writeCommandAction(project, statement.getContainingFile())
+                .withName("Rewrite Foreach into One Statement")
+                .run(() -> {
+                    statement.getValue().setEscapedText(body);
+                    CodeStyleManager.getInstance(project).reformat(statement);
+                });
+    }
+
+    /**
+     * The column list is taken from the statement, or from the table in the data sources when the statement has
+     * none.
+     */
+    @Nullable
+    private static String createInsert(XmlTag statement, XmlTag foreach, Matcher matcher) {
+        String columns = matcher.group(2);
+        List<String> values = splitTopLevel(matcher.group(3));
+        if (null == columns) {
+            DasTable table = DbToolsUtils.findTable(statement.getProject(), matcher.group(1));
+            if (null == table) {
+                return null;
+            }
+            List<String> names = Lists.newArrayList();
+            for (DasColumn column : DasUtil.getColumns(table)) {
+                names.add(column.getName());
+            }
+            if (names.size() != values.size()) {
+                return null;
+            }
+            columns = String.join(", ", names);
+        } else if (splitTopLevel(columns).size() != values.size()) {
+            return null;
+        }
+        return "insert into " + matcher.group(1) + " (" + columns.trim() + ")\nvalues\n"
+                + openForeach(foreach, ",") + "(" + String.join(", ", values) + ")</foreach>";
+    }
+
+    @Nullable
+    private static String createUpdate(XmlTag foreach, Matcher matcher) {
+        String key = matcher.group(3);
+        String keyValue = matcher.group(4);
+        List<String> assignments = Lists.newArrayList();
+        for (String assignment : splitTopLevel(matcher.group(2))) {
+            Matcher column = ASSIGNMENT.matcher(assignment);
+            if (!column.matches()) {
+                return null;
+            }
+            assignments.add(column.group(1) + " = case " + key + "\n" + openForeach(foreach, " ")
+                    + "when " + keyValue + " then " + column.group(2).trim() + "</foreach>\nend");
+        }
+        return "update " + matcher.group(1) + "\nset " + String.join(",\n", assignments) + "\nwhere " + key + " in\n"
+                + openForeach(foreach, ",").replace(" separator=", " open=\"(\" close=\")\" separator=") + keyValue + "</foreach>";
+    }
+
+    private static String openForeach(XmlTag foreach, String separator) {
+        StringBuilder builder = new StringBuilder("<foreach");
+        for (String name : new String[]{"collection", "item", "index"}) {
+            String value = foreach.getAttributeValue(name);
+            if (null != value) {
+                builder.append(' ').append(name).append("=\"").append(StringUtil.escapeXmlEntities(value)).append('"');
+            }
+        }
+        return builder.append(" separator=\"").append(separator).append("\">").toString();
+    }
+
+    /**
+     * Splits on the commas outside of parentheses and {@code #{}} placeholders.
+     */
+    private static List<String> splitTopLevel(String text) {
+        List<String> result = Lists.newArrayList();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ('(' == c || '{' == c) {
+                depth++;
+            } else if (')' == c || '}' == c) {
+                depth--;
+            } else if (',' == c && 0 == depth) {
+                result.add(text.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        result.add(text.substring(start).trim());
+        return result;
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.tianlei.mybatis.refactoring;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.refactoring.listeners.RefactoringElementListener;
+import com.intellij.refactoring.rename.RenameJavaMethodProcessor;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.util.IncorrectOperationException;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
+import com.tianlei.mybatis.index.MapperStatementIndex;
+import com.tianlei.mybatis.index.StatementEntry;
+import com.tianlei.mybatis.locator.MapperLocator;
+import com.tianlei.mybatis.util.DomUtils;
+import com.tianlei.mybatis.util.JavaUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renames the statements of a dao method, and the nested {@code select} references to them, together with the
+ * method. {@code refid} is left alone, it names {@code <sql>} fragments and never a statement. Mappers of every sub
+ * interface are covered, so methods of shared base interfaces are handled as well; all lookups go through the
+ * mapper indexes. Methods of other interfaces, and of other languages, are left to the default processors.
+ */
+public class MapperMethodRenameProcessor extends RenameJavaMethodProcessor {
+
+    @Override
+    public boolean canProcessElement(@NotNull PsiElement element) {
+        if (!super.canProcessElement(element) || !(element instanceof PsiMethod)
+                || !element.getLanguage().isKindOf(JavaLanguage.INSTANCE)
+                || !JavaUtils.isElementWithinInterface(element) || DumbService.isDumb(element.getProject())) {
+            return false;
+        }
+        PsiMethod method = (PsiMethod) element;
+        PsiClass clazz = method.getContainingClass();
+        Project project = method.getProject();
+        return MapperLocator.getInstance(project).process(method)
+                || (null != clazz && null != clazz.getQualifiedName()
+                && !MapperNamespaceIndex.findMapperFiles(project, clazz.getQualifiedName()).isEmpty());
+    }
+
+    @Override
+    public void renameElement(@NotNull PsiElement element,
+                              @NotNull String newName,
+                              @NotNull UsageInfo[] usages,
+                              @Nullable RefactoringElementListener listener) throws IncorrectOperationException {
+        List<Pair<XmlAttribute, String>> rewrites = element instanceof PsiMethod
+                ? collectRewrites((PsiMethod) element, newName) : Lists.newArrayList();
+        super.renameElement(element, newName, usages, listener);
+        for (Pair<XmlAttribute, String> rewrite : rewrites) {
+            if (rewrite.first.isValid() && !rewrite.second.equals(rewrite.first.getValue())) {
+                rewrite.first.setValue(rewrite.second);
+            }
+        }
+    }
+
+    @NotNull
+    private List<Pair<XmlAttribute, String>> collectRewrites(@NotNull PsiMethod method, @NotNull String newName) {
+        List<Pair<XmlAttribute, String>> result = Lists.newArrayList();
+        PsiClass clazz = method.getContainingClass();
+        String oldName = method.getName();
+        if (null == clazz || null == clazz.getQualifiedName() || oldName.equals(newName)) {
+            return result;
+        }
+        Project project = method.getProject();
+        Set<String> namespaces = getNamespaces(clazz);
+        Map<VirtualFile, Set<Integer>> statements = Maps.newHashMap();
+        MapperStatementIndex.processEntries(oldName, GlobalSearchScope.allScope(project), (file, entries) -> {
+            for (StatementEntry entry : entries) {
+                if (entry.isDaoStatement() && namespaces.contains(entry.getNamespace())) {
+                    statements.computeIfAbsent(file, key -> Sets.newHashSet()).add(entry.getOffset());
+                }
+            }
+            return true;
+        });
+
+        Set<VirtualFile> referencingFiles = Sets.newLinkedHashSet(statements.keySet());
+        for (String namespace : namespaces) {
+            referencingFiles.addAll(MapperNamespaceIndex.findFiles(project, namespace, MapperNamespaceIndex.REFERENCED));
+        }
+
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile file : referencingFiles) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            if (!DomUtils.isMybatisFile(psiFile)) {
+                continue;
+            }
+            for (Integer offset : statements.getOrDefault(file, Sets.newHashSet())) {
+                XmlTag tag = PsiTreeUtil.getParentOfType(psiFile.findElementAt(offset), XmlTag.class, false);
+                XmlAttribute id = null == tag ? null : tag.getAttribute("id");
+                if (null != id && oldName.equals(id.getValue())) {
+                    result.add(Pair.create(id, newName));
+                }
+            }
+            XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+            String fileNamespace = rootTag.getAttributeValue("namespace");
+            collectReferences(rootTag, namespaces.contains(fileNamespace), namespaces, oldName, newName, result);
+        }
+        return result;
+    }
+
+    private void collectReferences(@NotNull XmlTag tag,
+                                   boolean localNamespace,
+                                   @NotNull Set<String> namespaces,
+                                   @NotNull String oldName,
+                                   @NotNull String newName,
+                                   @NotNull List<Pair<XmlAttribute, String>> result) {
+        for (XmlTag subTag : tag.getSubTags()) {
+            XmlAttribute attribute = subTag.getAttribute("select");
+            String value = null == attribute ? null : attribute.getValue();
+            if (null != value) {
+                String namespace = MapperNamespaceIndex.getReferencedNamespace(value);
+                if (null == namespace && localNamespace && value.equals(oldName)) {
+                    result.add(Pair.create(attribute, newName));
+                } else if (null != namespace && namespaces.contains(namespace) && value.equals(namespace + "." + oldName)) {
+                    result.add(Pair.create(attribute, namespace + "." + newName));
+                }
+            }
+            collectReferences(subTag, localNamespace, namespaces, oldName, newName, result);
+        }
+    }
+
+    @NotNull
+    private Set<String> getNamespaces(@NotNull PsiClass clazz) {
+        Set<String> result = Sets.newHashSet(clazz.getQualifiedName());
+        for (PsiClass inheritor : ClassInheritorsSearch.search(clazz, GlobalSearchScope.projectScope(clazz.getProject()), true)) {
+            ProgressManager.checkCanceled();
+            if (inheritor.isInterface() && null != inheritor.getQualifiedName()) {
+                result.add(inheritor.getQualifiedName());
+            }
+        }
+        return result;
+    }
+
+}
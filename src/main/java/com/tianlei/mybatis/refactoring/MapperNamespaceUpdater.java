@@ -0,0 +1,196 @@
+package com.tianlei.mybatis.refactoring;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.refactoring.listeners.RefactoringEventData;
+import com.intellij.refactoring.listeners.RefactoringEventListener;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
+import com.tianlei.mybatis.util.DomUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites mapper namespaces, qualified {@code refid}/{@code resultMap}/{@code select} references and java type
+ * names after classes or packages got a new qualified name. Renames reported during one refactoring are queued and
+ * applied together when the refactoring is done, inside its command, so undoing the refactoring undoes them too.
+ * Renames no refactoring reports done are applied later in a command of their own.
+ */
+public class MapperNamespaceUpdater implements Disposable {
+
+    private final Project project;
+
+    private final Map<String, String> pending = new LinkedHashMap<>();
+
+    private boolean scheduled;
+
+    public MapperNamespaceUpdater(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(RefactoringEventListener.REFACTORING_EVENT_TOPIC, new RefactoringEventListener() {
+            @Override
+            public void refactoringStarted(@NotNull String refactoringId, @Nullable RefactoringEventData beforeData) {
+            }
+
+            @Override
+            public void refactoringDone(@NotNull String refactoringId, @Nullable RefactoringEventData afterData) {
+                if (null != CommandProcessor.getInstance().getCurrentCommand() && !DumbService.isDumb(project)) {
+                    apply(drain());
+                }
+            }
+
+            @Override
+            public void conflictsDetected(@NotNull String refactoringId, @NotNull RefactoringEventData conflictsData) {
+            }
+
+            @Override
+            public void undoRefactoring(@NotNull String refactoringId) {
+            }
+        });
+    }
+
+    public static MapperNamespaceUpdater getInstance(@NotNull Project project) {
+        return project.getService(MapperNamespaceUpdater.class);
+    }
+
+    /**
+     * Queues the rename of a qualified class or package name, also covering every name nested under it.
+     */
+    public synchronized void schedule(@Nullable String oldName, @Nullable String newName) {
+        if (null == oldName || null == newName || oldName.isEmpty() || oldName.equals(newName)) {
+            return;
+        }
+        pending.put(oldName, newName);
+        if (!scheduled) {
+            scheduled = true;
+            ApplicationManager.getApplication().invokeLater(this::flush, project.getDisposed());
+        }
+    }
+
+    private void flush() {
+        Map<String, String> renames;
+        synchronized (this) {
+            scheduled = false;
+            renames = drain();
+        }
+        if (!renames.isEmpty()) {
+            DumbService.getInstance(project).runWhenSmart(() -> apply(renames));
+        }
+    }
+
+    @NotNull
+    private synchronized Map<String, String> drain() {
+        Map<String, String> renames = new LinkedHashMap<>(pending);
+        pending.clear();
+        return renames;
+    }
+
+    /**
+     * Runs as part of the current command if there is one, e.g. the refactoring's.
+     */
+    private void apply(@NotNull Map<String, String> renames) {
+        if (renames.isEmpty()) {
+            return;
+        }
+        List<Pair<XmlAttribute, String>> rewrites = collectRewrites(renames);
+        if (rewrites.isEmpty()) {
+            return;
+        }
+        WriteCommandAction.writeCommandAction(project).withName("Update Mapper Namespaces").run(() -> {
+            for (Pair<XmlAttribute, String> rewrite : rewrites) {
+                if (rewrite.first.isValid()) {
+                    rewrite.first.setValue(rewrite.second);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @NotNull
+    private List<Pair<XmlAttribute, String>> collectRewrites(@NotNull Map<String, String> renames) {
+        Set<VirtualFile> files = MapperNamespaceIndex.findFiles(project, key -> null != rename(key, renames));
+        List<Pair<XmlAttribute, String>> result = Lists.newArrayList();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile file : files) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            if (DomUtils.isMybatisFile(psiFile)) {
+                XmlTag rootTag = ((XmlFile) psiFile).getRootTag();
+                collectRewrites(rootTag, renames, result);
+            }
+        }
+        return result;
+    }
+
+    private void collectRewrites(@NotNull XmlTag tag, @NotNull Map<String, String> renames, @NotNull List<Pair<XmlAttribute, String>> result) {
+        for (XmlAttribute attribute : tag.getAttributes()) {
+            String value = attribute.getValue();
+            if (null != value && isRewritable(attribute.getName())) {
+                String newValue = renameAll(value, renames);
+                if (!value.equals(newValue)) {
+                    result.add(Pair.create(attribute, newValue));
+                }
+            }
+        }
+        for (XmlTag subTag : tag.getSubTags()) {
+            collectRewrites(subTag, renames, result);
+        }
+    }
+
+    private boolean isRewritable(@NotNull String attributeName) {
+        return "namespace".equals(attributeName)
+                || MapperNamespaceIndex.ID_REFERENCE_ATTRIBUTES.contains(attributeName)
+                || MapperNamespaceIndex.TYPE_ATTRIBUTES.contains(attributeName);
+    }
+
+    @NotNull
+    private String renameAll(@NotNull String value, @NotNull Map<String, String> renames) {
+        if (!value.contains(",")) {
+            String renamed = rename(value.trim(), renames);
+            return null == renamed ? value : renamed;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String part : value.split(",", -1)) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            String renamed = rename(part.trim(), renames);
+            builder.append(null == renamed ? part : renamed);
+        }
+        return builder.toString();
+    }
+
+    @Nullable
+    private static String rename(@NotNull String qualifiedName, @NotNull Map<String, String> renames) {
+        for (Map.Entry<String, String> entry : renames.entrySet()) {
+            String oldName = entry.getKey();
+            if (qualifiedName.equals(oldName)) {
+                return entry.getValue();
+            }
+            if (qualifiedName.startsWith(oldName) && qualifiedName.charAt(oldName.length()) == '.') {
+                return entry.getValue() + qualifiedName.substring(oldName.length());
+            }
+        }
+        return null;
+    }
+
+}
@@ -2,8 +2,7 @@ package com.tianlei.mybatis.refactoring;
 
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiElement;
+import com.intellij.psi.*;
 import com.intellij.refactoring.listeners.RefactoringElementListener;
 import com.intellij.refactoring.listeners.RefactoringElementListenerProvider;
 import com.tianlei.mybatis.dom.model.Mapper;
@@ -19,10 +18,17 @@ public class MapperRefactoringProvider implements RefactoringElementListenerProv
     @Nullable
     @Override
     public RefactoringElementListener getListener(final PsiElement element) {
+        if (element instanceof PsiPackage || element instanceof PsiDirectory) {
+            return getPackageListener(element);
+        }
         if (!(element instanceof PsiClass)) return null;
+        final String oldName = ((PsiClass) element).getQualifiedName();
         return new RefactoringElementListener() {
             @Override
             public void elementMoved(@NotNull PsiElement newElement) {
+                if (newElement instanceof PsiClass) {
+                    MapperNamespaceUpdater.getInstance(newElement.getProject()).schedule(oldName, ((PsiClass) newElement).getQualifiedName());
+                }
             }
 
             @Override
@@ -31,16 +37,44 @@ public class MapperRefactoringProvider implements RefactoringElementListenerProv
                     ApplicationManager.getApplication().runWriteAction(new Runnable() {
                         @Override
                         public void run() {
-                            renameMapperXml((PsiClass) element, (PsiClass) newElement);
+                            renameMapperXml(oldName, (PsiClass) newElement);
                         }
                     });
+                    MapperNamespaceUpdater.getInstance(newElement.getProject()).schedule(oldName, ((PsiClass) newElement).getQualifiedName());
                 }
             }
         };
     }
 
-    private void renameMapperXml(@NotNull final PsiClass oldClazz, @NotNull final PsiClass newClazz) {
-        Collection<Mapper> mappers = MapperUtils.findMappers(oldClazz.getProject(), oldClazz);
+    @Nullable
+    private RefactoringElementListener getPackageListener(@NotNull PsiElement element) {
+        final String oldName = getPackageName(element);
+        if (null == oldName || oldName.isEmpty()) return null;
+        return new RefactoringElementListener() {
+            @Override
+            public void elementMoved(@NotNull PsiElement newElement) {
+                MapperNamespaceUpdater.getInstance(newElement.getProject()).schedule(oldName, getPackageName(newElement));
+            }
+
+            @Override
+            public void elementRenamed(@NotNull PsiElement newElement) {
+                elementMoved(newElement);
+            }
+        };
+    }
+
+    @Nullable
+    private String getPackageName(@NotNull PsiElement element) {
+        if (element instanceof PsiPackage) {
+            return ((PsiPackage) element).getQualifiedName();
+        }
+        PsiPackage pkg = element instanceof PsiDirectory ? JavaDirectoryService.getInstance().getPackage((PsiDirectory) element) : null;
+        return null == pkg ? null : pkg.getQualifiedName();
+    }
+
+    private void renameMapperXml(@Nullable final String oldName, @NotNull final PsiClass newClazz) {
+        if (null == oldName || !newClazz.isInterface()) return;
+        Collection<Mapper> mappers = MapperUtils.findMappers(newClazz.getProject(), oldName);
         try {
             for (Mapper mapper : mappers) {
                 VirtualFile vf = mapper.getXmlTag().getOriginalElement().getContainingFile().getVirtualFile();
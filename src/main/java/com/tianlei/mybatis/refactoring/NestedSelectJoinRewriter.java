@@ -0,0 +1,352 @@
+package com.tianlei.mybatis.refactoring;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.XmlElementFactory;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlTagChild;
+import com.intellij.psi.xml.XmlText;
+import com.intellij.util.xml.DomService;
+import com.tianlei.mybatis.analysis.NestedSelectAnalyzer;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.dom.model.NestedSelectGroup;
+import com.tianlei.mybatis.util.MybatisConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites an {@code <association select>} or {@code <collection select>} mapping into a nested result map fed by a
+ * left join in the parent statements. The nested select must be a plain {@code select <columns> from <table> where
+ * <column> = #{...}}, its columns become the prefixed columns of the nested result map.
+ */
+public final class NestedSelectJoinRewriter {
+
+    private static final Pattern CHILD_SELECT = Pattern.compile(
+            "^\\s*select\\s+(.+?)\\s+from\\s+([\\w.]+)(?:\\s+(?:as\\s+)?(\\w+))?\\s+where\\s+(?:(\\w+)\\.)?(\\w+)\\s*=\\s*#\\{[^}]*}\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern PARENT_SELECT = Pattern.compile(
+            "^(\\s*select\\s+)(.+?)(\\s+from\\s+[\\w.]+)(?:(\\s+(?:as\\s+)?)(\\w+))?(?=\\s|$)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern COLUMN = Pattern.compile("^(?:(\\w+)\\.)?(\\w+)(?:\\s+(?:as\\s+)?[`\"]?(\\w+)[`\"]?)?$",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("\\w+");
+
+    private static final Pattern DISTINCT = Pattern.compile("(?i)distinct\\b");
+
+    private static final Set<String> KEYWORDS = ImmutableSet.of("where", "left", "right", "inner", "outer", "full",
+            "cross", "join", "on", "order", "group", "having", "limit", "union", "for");
+
+    private static final Splitter COMMA_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private NestedSelectJoinRewriter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return how to rewrite the mapping, null if its select or column is not simple enough to be turned into a join,
+     * or if it is nested in an inline association or collection, whose columns belong to the nested row
+     */
+    @Nullable
+    public static JoinPlan plan(@NotNull NestedSelectGroup mapping) {
+        XmlTag mappingTag = mapping.getXmlTag();
+        XmlTag parentTag = null == mappingTag ? null : mappingTag.getParentTag();
+        if (null == parentTag || !"resultMap".equals(parentTag.getName()) || null == parentTag.getParentTag()
+                || null != parentTag.getParentTag().getParentTag()) {
+            return null;
+        }
+        XmlTag child = NestedSelectAnalyzer.getSelectTag(mapping);
+        String parentColumn = StringUtil.trim(mapping.getColumn().getStringValue());
+        String property = null == mappingTag ? null : mappingTag.getAttributeValue("property");
+        if (null == child || null == parentColumn || null == property || !IDENTIFIER.matcher(parentColumn).matches()
+                || 0 != child.getSubTags().length) {
+            return null;
+        }
+        Matcher matcher = CHILD_SELECT.matcher(child.getValue().getTrimmedText());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String childAlias = matcher.group(3);
+        if (null != childAlias && KEYWORDS.contains(childAlias.toLowerCase())) {
+            return null;
+        }
+        List<String> columns = Lists.newArrayList();
+        List<String> labels = Lists.newArrayList();
+        for (String item : COMMA_SPLITTER.split(matcher.group(1))) {
+            Matcher column = COLUMN.matcher(item);
+            if (!column.matches() || (null != column.group(1) && !column.group(1).equalsIgnoreCase(StringUtil.notNullize(childAlias, matcher.group(2))))) {
+                return null;
+            }
+            columns.add(column.group(2));
+            labels.add(null == column.group(3) ? column.group(2) : column.group(3));
+        }
+        return new JoinPlan(child, property + '_', matcher.group(2), matcher.group(5), parentColumn, columns, labels);
+    }
+
+    /**
+     * Rewrites the mapping into a nested result map and joins the nested table into every statement of the project
+     * that uses the enclosing result map, all in one write command. Nothing is changed unless every user of the
+     * result map can be rewritten: the conflicts are shown instead.
+     */
+    public static void rewrite(@NotNull Project project, @NotNull NestedSelectGroup mapping, @NotNull JoinPlan plan) {
+        XmlTag mappingTag = mapping.getXmlTag();
+        XmlTag resultMap = null == mappingTag ? null : getTopLevelTag(mappingTag);
+        XmlTag rootTag = null == resultMap ? null : resultMap.getParentTag();
+        if (null == rootTag || !"resultMap".equals(resultMap.getName()) || null == resultMap.getAttributeValue("id")) {
+            return;
+        }
+        String resultMapId = resultMap.getAttributeValue("id");
+        String childResultMap = plan.child.getAttributeValue("resultMap");
+        String type = StringUtil.notNullize(plan.child.getAttributeValue("resultType"),
+                StringUtil.notNullize(mappingTag.getAttributeValue("ofType"), mappingTag.getAttributeValue("javaType")));
+        if (null == childResultMap && type.isEmpty()) {
+            return;
+        }
+        List<String> conflicts = Lists.newArrayList();
+        Map<XmlText, String> rewrites = Maps.newLinkedHashMap();
+        for (XmlTag statement : findUsers(project, qualify(getNamespace(rootTag), resultMapId), conflicts)) {
+            XmlTagChild[] children = statement.getValue().getChildren();
+            XmlText text = children.length > 0 && children[0] instanceof XmlText ? (XmlText) children[0] : null;
+            String value = null == text ? null : createJoinedText(text.getValue(), plan);
+            if (null == value) {
+                conflicts.add(getDisplayName(statement) + ": the sql does not start with a plain select ... from <table>");
+            } else {
+                rewrites.put(text, value);
+            }
+        }
+        if (rewrites.isEmpty() && conflicts.isEmpty()) {
+            conflicts.add("No statement selects into " + resultMapId + ", the nested columns would never be read");
+        }
+        if (!conflicts.isEmpty()) {
+            Messages.showErrorDialog(project, "The nested select can not be converted, every user of " + resultMapId
+                    + " must be rewritten:\n" + String.join("\n", conflicts), "Convert Nested Select to Join");
+            return;
+        }
+        Set<PsiFile> files = Sets.newLinkedHashSet();
+        files.add(mappingTag.getContainingFile());
+        for (XmlText text : rewrites.keySet()) {
+            files.add(text.getContainingFile());
+        }
+        WriteCommandAction.writeCommandAction(project, files.toArray(PsiFile.EMPTY_ARRAY))
+                .withName("Convert Nested Select to Join")
+                .run(() -> {
+                    String nestedId;
+                    if (null != childResultMap) {
+                        boolean local = plan.child.getContainingFile().equals(mappingTag.getContainingFile());
+                        String namespace = null == plan.child.getParentTag() ? null : plan.child.getParentTag().getAttributeValue("namespace");
+                        nestedId = local || null == namespace || childResultMap.contains(MybatisConstants.DOT_SEPARATOR)
+                                ? childResultMap : namespace + MybatisConstants.DOT_SEPARATOR + childResultMap;
+                    } else {
+                        nestedId = getUniqueId(rootTag, resultMapId + '_' + mappingTag.getAttributeValue("property"));
+                        XmlTag nested = (XmlTag) rootTag.addBefore(XmlElementFactory.getInstance(project)
+                                .createTagFromText(createResultMap(nestedId, type, plan.labels)), resultMap);
+                        CodeStyleManager.getInstance(project).reformat(nested);
+                    }
+                    for (String attribute : new String[]{"select", "column", "fetchType"}) {
+                        mappingTag.setAttribute(attribute, null);
+                    }
+                    mappingTag.setAttribute("resultMap", nestedId);
+                    mappingTag.setAttribute("columnPrefix", plan.prefix);
+                    for (Map.Entry<XmlText, String> rewrite : rewrites.entrySet()) {
+                        rewrite.getKey().setValue(rewrite.getValue());
+                    }
+                });
+    }
+
+    /**
+     * Scans every mapper of the project for references to the result map. Single {@code resultMap} attributes of
+     * top level selects are users the join can be added to; lists of result maps, nested references and result
+     * maps extending it are conflicts, as they would read the prefixed columns without the join.
+     */
+    private static List<XmlTag> findUsers(Project project, String qualifiedId, List<String> conflicts) {
+        List<XmlTag> result = Lists.newArrayList();
+        for (VirtualFile file : DomService.getInstance().getDomFileCandidates(Mapper.class, GlobalSearchScope.projectScope(project))) {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+            XmlTag rootTag = psiFile instanceof XmlFile ? ((XmlFile) psiFile).getRootTag() : null;
+            if (null == rootTag) {
+                continue;
+            }
+            String namespace = getNamespace(rootTag);
+            for (XmlTag tag : PsiTreeUtil.findChildrenOfType(rootTag, XmlTag.class)) {
+                String extended = tag.getAttributeValue("extends");
+                if ("resultMap".equals(tag.getName()) && null != extended && qualifiedId.equals(qualify(namespace, extended))) {
+                    conflicts.add(getDisplayName(tag) + ": extends the result map");
+                }
+                String reference = tag.getAttributeValue("resultMap");
+                List<String> ids = Lists.newArrayList();
+                for (String id : COMMA_SPLITTER.split(StringUtil.notNullize(reference))) {
+                    ids.add(qualify(namespace, id));
+                }
+                if (!ids.contains(qualifiedId)) {
+                    continue;
+                }
+                if (!"select".equals(tag.getName()) || tag.getParentTag() != rootTag) {
+                    conflicts.add(getDisplayName(getTopLevelTag(tag)) + ": maps it as a nested result map");
+                } else if (ids.size() > 1) {
+                    conflicts.add(getDisplayName(tag) + ": uses it in a list of result maps");
+                } else {
+                    result.add(tag);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Qualifies the bare select items with the parent alias, as a joined table may have columns of the same names,
+     * and joins the nested table under an alias the statement does not use yet.
+     *
+     * @return the new text, null if it does not start with a plain {@code select ... from <table>}
+     */
+    @Nullable
+    private static String createJoinedText(String value, JoinPlan plan) {
+        Matcher matcher = PARENT_SELECT.matcher(value);
+        if (!matcher.find() || DISTINCT.matcher(matcher.group(2)).lookingAt()) {
+            return null;
+        }
+        String alias = matcher.group(5);
+        boolean aliased = null != alias && !KEYWORDS.contains(alias.toLowerCase());
+        String[] from = matcher.group(3).trim().split("\\s+");
+        String parentAlias = aliased ? alias : from[from.length - 1];
+        List<String> items = Lists.newArrayList();
+        for (String item : COMMA_SPLITTER.split(matcher.group(2))) {
+            Matcher column = COLUMN.matcher(item);
+            if ("*".equals(item)) {
+                items.add(parentAlias + ".*");
+            } else if (column.matches() && null == column.group(1)) {
+                items.add(parentAlias + '.' + item);
+            } else {
+                items.add(item);
+            }
+        }
+        String joinAlias = getUniqueAlias(value, parentAlias);
+        items.addAll(plan.createColumns(joinAlias));
+        String head = matcher.group(1) + String.join(", ", items) + matcher.group(3)
+                + (aliased ? matcher.group(4) + alias : "") + ' ' + plan.createJoin(parentAlias, joinAlias);
+        int end = aliased ? matcher.end() : matcher.end(3);
+        return head + value.substring(end);
+    }
+
+    private static String getUniqueAlias(String text, String parentAlias) {
+        Set<String> words = Sets.newHashSet(parentAlias.toLowerCase());
+        Matcher word = IDENTIFIER.matcher(text);
+        while (word.find()) {
+            words.add(word.group().toLowerCase());
+        }
+        String alias = "j1";
+        for (int i = 2; words.contains(alias); i++) {
+            alias = "j" + i;
+        }
+        return alias;
+    }
+
+    private static String getNamespace(XmlTag rootTag) {
+        return StringUtil.notNullize(rootTag.getAttributeValue("namespace")).trim();
+    }
+
+    private static String qualify(String namespace, String id) {
+        String trimmed = id.trim();
+        return trimmed.contains(MybatisConstants.DOT_SEPARATOR) ? trimmed : namespace + MybatisConstants.DOT_SEPARATOR + trimmed;
+    }
+
+    private static String getDisplayName(XmlTag tag) {
+        XmlTag rootTag = tag.getParentTag();
+        String namespace = null == rootTag ? "" : getNamespace(rootTag);
+        return qualify(namespace, StringUtil.notNullize(tag.getAttributeValue("id"), "<" + tag.getName() + ">"));
+    }
+
+    private static String createResultMap(String id, String type, List<String> labels) {
+        StringBuilder builder = new StringBuilder("<resultMap id=\"").append(id).append("\" type=\"").append(type).append("\">");
+        for (String label : labels) {
+            String property = label.contains("_") || label.equals(label.toUpperCase())
+                    ? CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, label.toLowerCase()) : label;
+            builder.append("id".equalsIgnoreCase(label) ? "<id" : "<result")
+                    .append(" property=\"").append(property).append("\" column=\"").append(label).append("\"/>");
+        }
+        return builder.append("</resultMap>").toString();
+    }
+
+    private static XmlTag getTopLevelTag(XmlTag tag) {
+        XmlTag current = tag;
+        while (null != current.getParentTag() && null != current.getParentTag().getParentTag()) {
+            current = current.getParentTag();
+        }
+        return current;
+    }
+
+    private static String getUniqueId(XmlTag rootTag, String base) {
+        Set<String> ids = Sets.newHashSet();
+        for (XmlTag tag : rootTag.getSubTags()) {
+            ids.add(tag.getAttributeValue("id"));
+        }
+        String id = base;
+        for (int i = 1; ids.contains(id); i++) {
+            id = base + i;
+        }
+        return id;
+    }
+
+    public static class JoinPlan {
+
+        private final XmlTag child;
+
+        private final String prefix;
+
+        private final String table;
+
+        private final String childColumn;
+
+        private final String parentColumn;
+
+        private final List<String> columns;
+
+        private final List<String> labels;
+
+        private JoinPlan(XmlTag child, String prefix, String table, String childColumn, String parentColumn,
+                         List<String> columns, List<String> labels) {
+            this.child = child;
+            this.prefix = prefix;
+            this.table = table;
+            this.childColumn = childColumn;
+            this.parentColumn = parentColumn;
+            this.columns = columns;
+            this.labels = labels;
+        }
+
+        private String createJoin(String parentAlias, String alias) {
+            return "LEFT JOIN " + table + ' ' + alias + " ON " + alias + '.' + childColumn + " = " + parentAlias + '.' + parentColumn;
+        }
+
+        private List<String> createColumns(String alias) {
+            List<String> result = Lists.newArrayList();
+            for (int i = 0; i < columns.size(); i++) {
+                result.add(alias + '.' + columns.get(i) + " AS " + prefix + labels.get(i));
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.tianlei.mybatis.refactoring;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.XmlElementFactory;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.xml.XmlTag;
+import com.tianlei.mybatis.util.MybatisConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class StatementConsolidator {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private StatementConsolidator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Equivalent statements may still differ in the text of their bodies, such as the refid of a local include,
+     * replacing one body by another is only safe when they are written the same.
+     *
+     * @return whether the bodies of the statements only differ in whitespace
+     */
+    public static boolean canExtract(@NotNull List<XmlTag> statements) {
+        String body = null;
+        for (XmlTag statement : statements) {
+            String text = WHITESPACE.matcher(statement.getValue().getText()).replaceAll(" ").trim();
+            if (null != body && !body.equals(text)) {
+                return false;
+            }
+            body = text;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the body of the first statement into a new {@code <sql>} fragment placed before it, then replaces the
+     * body of every statement by an include of that fragment, all in one write command.
+     */
+    public static void extractFragment(@NotNull Project project, @NotNull List<XmlTag> statements) {
+        if (statements.size() < 2 || !canExtract(statements)) {
+            return;
+        }
+        XmlTag first = statements.get(0);
+        XmlTag rootTag = first.getParentTag();
+        if (null == rootTag) {
+            return;
+        }
+        String namespace = rootTag.getAttributeValue("namespace");
+        String id = getUniqueId(rootTag, first.getAttributeValue("id") + "Body");
+        Set<PsiFile> files = Sets.newLinkedHashSet();
+        for (XmlTag statement : statements) {
+            files.add(statement.getContainingFile());
+        }
+        WriteCommandAction.writeCommandAction(project, files.toArray(PsiFile.EMPTY_ARRAY))
+                .withName("Extract Duplicate Statements into <sql>")
+                .run(() -> {
+                    XmlTag fragment = XmlElementFactory.getInstance(project)
+                            .createTagFromText("<sql id=\"" + id + "\">" + first.getValue().getText() + "</sql>");
+                    fragment = (XmlTag) rootTag.addBefore(fragment, first);
+                    CodeStyleManager codeStyleManager = CodeStyleManager.getInstance(project);
+                    codeStyleManager.reformat(fragment);
+                    for (XmlTag statement : statements) {
+                        boolean local = statement.getContainingFile().equals(first.getContainingFile());
+                        String refid = local || null == namespace ? id : namespace + MybatisConstants.DOT_SEPARATOR + id;
+                        statement.getValue().setEscapedText("<include refid=\"" + refid + "\"/>");
+                        codeStyleManager.reformat(statement);
+                    }
+                });
+    }
+
+    private static String getUniqueId(XmlTag rootTag, String base) {
+        Set<String> ids = Sets.newHashSet();
+        for (XmlTag tag : rootTag.getSubTags()) {
+            ids.add(tag.getAttributeValue("id"));
+        }
+        String id = base;
+        for (int i = 1; ids.contains(id); i++) {
+            id = base + i;
+        }
+        return id;
+    }
+
+}
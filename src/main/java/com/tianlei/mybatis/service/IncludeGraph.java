@@ -0,0 +1,678 @@
+package com.tianlei.mybatis.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.xml.DomService;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
+import com.tianlei.mybatis.util.MybatisConstants;
+import com.tianlei.mybatis.util.SqlTextUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Dependency graph of the mapper xml files: statements and {@code <sql>} fragments depend on the fragments they
+ * include, result maps on the one they extend and a namespace on the one its {@code cache-ref} points to.
+ * <p>
+ * Expanded bodies and include depths are memoized per node. A changed mapper file only drops the memos of the nodes
+ * it changed and of the nodes downstream of them; the rest of the graph keeps its values. Readers share immutable
+ * snapshots of the graph and never wait for each other.
+ * <p>
+ * The first snapshot reads every mapper file, so it is built once in a background read action. Until it is ready,
+ * queries are answered from the queried file and the mapper files it refers to.
+ */
+public class IncludeGraph implements Disposable {
+
+    private static final String SQL = "sql:";
+
+    private static final String STATEMENT = "statement:";
+
+    private static final String RESULT_MAP = "resultMap:";
+
+    private static final String CACHE = "cache:";
+
+    private static final Set<String> STATEMENT_TAGS = Sets.newHashSet("select", "insert", "update", "delete");
+
+    private final Project project;
+
+    /**
+     * Immutable apart from its memos, replaced as a whole when mapper files change so readers never take a lock.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * The nodes being expanded by the current thread, to stop at include cycles.
+     */
+    private final ThreadLocal<Set<String>> computing = ThreadLocal.withInitial(Sets::newHashSet);
+
+    /**
+     * Filled by the psi listener, write actions never wait for a reader of the graph.
+     */
+    private final Set<VirtualFile> dirtyFiles = ConcurrentHashMap.newKeySet();
+
+    private final SimpleModificationTracker modificationTracker = new SimpleModificationTracker();
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    /**
+     * The files the first build has read so far, kept when the build is canceled by a write action and restarted.
+     */
+    private final Map<VirtualFile, FileNodes> builtFiles = new ConcurrentHashMap<>();
+
+    public static IncludeGraph getInstance(@NotNull Project project) {
+        return project.getService(IncludeGraph.class);
+    }
+
+    public IncludeGraph(Project project) {
+        this.project = project;
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void childAdded(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event);
+            }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event);
+            }
+
+            @Override
+            public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event);
+            }
+
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event);
+            }
+
+            @Override
+            public void childMoved(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event);
+            }
+
+            @Override
+            public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event);
+            }
+        }, this);
+    }
+
+    private void markDirty(PsiTreeChangeEvent event) {
+        PsiFile file = event.getFile();
+        if (null == file && event.getChild() instanceof PsiFile) {
+            file = (PsiFile) event.getChild();
+        }
+        if (file instanceof XmlFile) {
+            dirtyFiles.add(file.getViewProvider().getVirtualFile());
+            modificationTracker.incModificationCount();
+        }
+    }
+
+    /**
+     * @return a tracker that changes with every xml file, unlike the psi tracker it ignores java changes
+     */
+    @NotNull
+    public ModificationTracker getModificationTracker() {
+        return modificationTracker;
+    }
+
+    /**
+     * @return the body of the statement or fragment with its includes expanded, see {@link SqlTextUtils#renderBody}
+     */
+    @NotNull
+    public String getExpansion(@NotNull XmlTag tag) {
+        Snapshot current = refresh(tag.getContainingFile());
+        Node node = findNode(current, tag);
+        if (null == node) {
+            return SqlTextUtils.renderBody(tag);
+        }
+        return expand(current, node);
+    }
+
+    /**
+     * @return the expanded body of the fragment the include points to, null if it can not be resolved or is part of
+     * a cycle being expanded
+     */
+    @Nullable
+    public String getIncludeExpansion(@NotNull XmlTag include) {
+        Snapshot current = refresh(include.getContainingFile());
+        Node node = current.nodes.get(getIncludeKey(include));
+        if (null == node || computing.get().contains(node.key) || null == node.getTag()) {
+            return null;
+        }
+        return expand(current, node);
+    }
+
+    /**
+     * @return the fragment the include points to, resolved through the graph instead of the dom converters
+     */
+    @Nullable
+    public XmlTag resolveInclude(@NotNull XmlTag include) {
+        Node node = refresh(include.getContainingFile()).nodes.get(getIncludeKey(include));
+        return null == node ? null : node.getTag();
+    }
+
+    private String expand(Snapshot current, Node node) {
+        String expansion = current.expansions.get(node.key);
+        if (null == expansion) {
+            XmlTag tag = node.getTag();
+            if (null == tag) {
+                return "";
+            }
+            Set<String> keys = computing.get();
+            keys.add(node.key);
+            try {
+                expansion = SqlTextUtils.renderBody(tag);
+            } finally {
+                keys.remove(node.key);
+            }
+            current.expansions.put(node.key, expansion);
+        }
+        return expansion;
+    }
+
+    /**
+     * @return the longest chain of includes below the statement or fragment, 0 if it includes nothing
+     */
+    public int getDepth(@NotNull XmlTag tag) {
+        Snapshot current = refresh(tag.getContainingFile());
+        Node node = findNode(current, tag);
+        return null == node ? 0 : depth(current, node.key, Sets.newHashSet(), new boolean[1]);
+    }
+
+    /**
+     * The depth of a node whose includes reach a node still being visited is partial, it is not memoized.
+     *
+     * @param cyclic set when a node on the visiting stack is reached
+     */
+    private int depth(Snapshot current, String key, Set<String> visiting, boolean[] cyclic) {
+        Integer depth = current.depths.get(key);
+        if (null != depth) {
+            return depth;
+        }
+        Node node = current.nodes.get(key);
+        if (null == node) {
+            return 0;
+        }
+        if (!visiting.add(key)) {
+            cyclic[0] = true;
+            return 0;
+        }
+        boolean[] below = new boolean[1];
+        int result = 0;
+        for (String dependency : node.dependencies) {
+            if (dependency.startsWith(SQL)) {
+                result = Math.max(result, 1 + depth(current, dependency, visiting, below));
+            }
+        }
+        visiting.remove(key);
+        if (below[0]) {
+            cyclic[0] = true;
+        } else {
+            current.depths.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Looks for a cycle through the given reference, which is an {@code <include>}, a {@code <resultMap>} with an
+     * {@code extends} attribute or a {@code <cache-ref>}.
+     *
+     * @return the keys along the cycle, starting and ending with the node holding the reference, null if none
+     */
+    @Nullable
+    public List<String> findCycle(@NotNull XmlTag reference) {
+        Snapshot current = refresh(reference.getContainingFile());
+        String source;
+        String target;
+        if ("include".equals(reference.getName())) {
+            XmlTag owner = getOwnerTag(reference);
+            source = null == owner ? null : getKey(owner);
+            target = getIncludeKey(reference);
+        } else if ("resultMap".equals(reference.getName())) {
+            String parent = reference.getAttributeValue("extends");
+            source = getKey(reference);
+            target = null == parent ? null : RESULT_MAP + qualify(getNamespace(reference), parent);
+        } else if ("cache-ref".equals(reference.getName())) {
+            String namespace = reference.getAttributeValue("namespace");
+            source = CACHE + getNamespace(reference);
+            target = null == namespace ? null : CACHE + namespace.trim();
+        } else {
+            return null;
+        }
+        if (null == source || null == target) {
+            return null;
+        }
+        List<String> path = findPath(current, target, source);
+        if (null == path) {
+            return null;
+        }
+        return ImmutableList.<String>builder().add(source).addAll(path).build();
+    }
+
+    @Nullable
+    private static List<String> findPath(Snapshot current, String from, String to) {
+        Map<String, String> previous = Maps.newHashMap();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(from);
+        previous.put(from, from);
+        while (!queue.isEmpty()) {
+            ProgressManager.checkCanceled();
+            String key = queue.poll();
+            if (key.equals(to)) {
+                List<String> path = Lists.newArrayList(key);
+                while (!key.equals(from)) {
+                    key = previous.get(key);
+                    path.add(key);
+                }
+                Collections.reverse(path);
+                return path;
+            }
+            Node node = current.nodes.get(key);
+            if (null != node) {
+                for (String dependency : node.dependencies) {
+                    if (!previous.containsKey(dependency)) {
+                        previous.put(dependency, key);
+                        queue.add(dependency);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Node findNode(Snapshot current, XmlTag tag) {
+        String key = getKey(tag);
+        Node node = null == key ? null : current.nodes.get(key);
+        return null != node && tag.equals(node.getTag()) ? node : null;
+    }
+
+    /**
+     * Brings the graph up to date without a lock: calls only re-read the files changed since and the one being
+     * queried if its stamp moved. Files changed while the first snapshot is built stay dirty and are read again by
+     * the next call. The new snapshot is built aside and swapped in, a thread losing the race retries from the
+     * snapshot that won.
+     *
+     * @return the snapshot to answer the query from
+     */
+    @NotNull
+    private Snapshot refresh(@Nullable PsiFile queried) {
+        while (true) {
+            Snapshot current = snapshot.get();
+            if (DumbService.isDumb(project)) {
+                return null == current ? Snapshot.EMPTY : current;
+            }
+            if (null == current) {
+                startBuild();
+                return buildLocal(queried);
+            }
+            Set<VirtualFile> changed = Sets.newHashSet();
+            for (VirtualFile file : Lists.newArrayList(dirtyFiles)) {
+                if (dirtyFiles.remove(file)) {
+                    changed.add(file);
+                }
+            }
+            VirtualFile virtualFile = null == queried ? null : queried.getViewProvider().getVirtualFile();
+            FileNodes fileNodes = null == virtualFile ? null : current.files.get(virtualFile);
+            if (queried instanceof XmlFile && (null == fileNodes || fileNodes.stamp != queried.getModificationStamp())) {
+                changed.add(virtualFile);
+            }
+            if (changed.isEmpty()) {
+                return current;
+            }
+            Snapshot next = new Snapshot(current);
+            for (VirtualFile file : changed) {
+                update(next, file);
+            }
+            if (snapshot.compareAndSet(current, next)) {
+                return next;
+            }
+            dirtyFiles.addAll(changed);
+        }
+    }
+
+    /**
+     * Starts the build of the first snapshot unless it already runs. The read action restarts after each write
+     * action and skips the files it read before whose stamp did not move.
+     */
+    private void startBuild() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        ReadAction.nonBlocking(this::buildAll)
+                .inSmartMode(project)
+                .expireWith(this)
+                .submit(AppExecutorUtil.getAppExecutorService())
+                .onSuccess(next -> {
+                    if (snapshot.compareAndSet(null, next)) {
+                        builtFiles.clear();
+                        modificationTracker.incModificationCount();
+                        DaemonCodeAnalyzer.getInstance(project).restart();
+                    }
+                })
+                .onError(e -> building.set(false));
+    }
+
+    private Snapshot buildAll() {
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile file : DomService.getInstance().getDomFileCandidates(Mapper.class, GlobalSearchScope.projectScope(project))) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            FileNodes built = builtFiles.get(file);
+            if (psiFile instanceof XmlFile && (null == built || built.stamp != psiFile.getModificationStamp())) {
+                builtFiles.put(file, build((XmlFile) psiFile));
+            }
+        }
+        Snapshot next = new Snapshot(Snapshot.EMPTY);
+        for (Map.Entry<VirtualFile, FileNodes> entry : builtFiles.entrySet()) {
+            update(next, entry.getKey(), entry.getValue());
+        }
+        return next;
+    }
+
+    /**
+     * @return a snapshot of the queried file and of the mapper files its references lead to, thrown away after the
+     * query
+     */
+    private Snapshot buildLocal(@Nullable PsiFile queried) {
+        Snapshot next = new Snapshot(Snapshot.EMPTY);
+        if (!(queried instanceof XmlFile)) {
+            return next;
+        }
+        Deque<VirtualFile> queue = new ArrayDeque<>();
+        Set<String> namespaces = Sets.newHashSet();
+        queue.add(queried.getViewProvider().getVirtualFile());
+        while (!queue.isEmpty()) {
+            ProgressManager.checkCanceled();
+            VirtualFile file = queue.poll();
+            if (next.files.containsKey(file)) {
+                continue;
+            }
+            update(next, file);
+            FileNodes fileNodes = next.files.get(file);
+            if (null == fileNodes) {
+                continue;
+            }
+            for (Node node : fileNodes.nodes.values()) {
+                for (String dependency : node.dependencies) {
+                    String name = getDisplayName(dependency);
+                    String namespace = dependency.startsWith(CACHE) ? name : name.substring(0, Math.max(0, name.lastIndexOf('.')));
+                    if (namespaces.add(namespace)) {
+                        queue.addAll(MapperNamespaceIndex.findMapperFiles(project, namespace));
+                    }
+                }
+            }
+        }
+        return next;
+    }
+
+    private void update(Snapshot next, VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        update(next, file, psiFile instanceof XmlFile ? build((XmlFile) psiFile) : null);
+    }
+
+    private void update(Snapshot next, VirtualFile file, @Nullable FileNodes newNodes) {
+        FileNodes oldNodes = null == newNodes || newNodes.nodes.isEmpty() ? next.files.remove(file) : next.files.put(file, newNodes);
+        Set<String> changed = Sets.newHashSet();
+        if (null != oldNodes) {
+            for (Node node : oldNodes.nodes.values()) {
+                Node replacement = null == newNodes ? null : newNodes.nodes.get(node.key);
+                if (null == replacement || replacement.textHash != node.textHash) {
+                    changed.add(node.key);
+                }
+                if (next.nodes.get(node.key) == node) {
+                    next.nodes.remove(node.key);
+                }
+                for (String dependency : node.dependencies) {
+                    Set<String> set = next.dependents.get(dependency);
+                    if (null != set) {
+                        set = Sets.newHashSet(set);
+                        set.remove(node.key);
+                        next.dependents.put(dependency, set);
+                    }
+                }
+            }
+        }
+        if (null != newNodes) {
+            for (Node node : newNodes.nodes.values()) {
+                if (null == oldNodes || !oldNodes.nodes.containsKey(node.key)) {
+                    changed.add(node.key);
+                }
+                next.nodes.put(node.key, node);
+                for (String dependency : node.dependencies) {
+                    Set<String> set = Sets.newHashSet(next.dependents.getOrDefault(dependency, Collections.emptySet()));
+                    set.add(node.key);
+                    next.dependents.put(dependency, set);
+                }
+            }
+        }
+        invalidate(next, changed);
+    }
+
+    /**
+     * Drops the memos of the changed nodes and of every node depending on them, directly or not.
+     */
+    private static void invalidate(Snapshot next, Set<String> changed) {
+        Deque<String> queue = new ArrayDeque<>(changed);
+        Set<String> visited = Sets.newHashSet(changed);
+        while (!queue.isEmpty()) {
+            String key = queue.poll();
+            next.expansions.remove(key);
+            next.depths.remove(key);
+            for (String dependent : next.dependents.getOrDefault(key, Collections.emptySet())) {
+                if (visited.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+    }
+
+    private FileNodes build(XmlFile file) {
+        FileNodes result = new FileNodes(file.getModificationStamp());
+        XmlTag rootTag = file.getRootTag();
+        if (null == rootTag || !"mapper".equals(rootTag.getName())) {
+            return result;
+        }
+        String namespace = getNamespace(rootTag);
+        for (XmlTag tag : rootTag.getSubTags()) {
+            if ("cache-ref".equals(tag.getName())) {
+                String target = tag.getAttributeValue("namespace");
+                if (null != target) {
+                    result.add(new Node(CACHE + namespace, tag, Collections.singletonList(CACHE + target.trim())));
+                }
+                continue;
+            }
+            String key = getKey(tag);
+            if (null == key) {
+                continue;
+            }
+            List<String> dependencies = Lists.newArrayList();
+            String parent = tag.getAttributeValue("extends");
+            if ("resultMap".equals(tag.getName()) && null != parent) {
+                dependencies.add(RESULT_MAP + qualify(namespace, parent));
+            }
+            for (XmlTag include : PsiTreeUtil.findChildrenOfType(tag, XmlTag.class)) {
+                String includeKey = "include".equals(include.getName()) ? getIncludeKey(include) : null;
+                if (null != includeKey) {
+                    dependencies.add(includeKey);
+                }
+            }
+            result.add(new Node(key, tag, dependencies));
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String getKey(XmlTag tag) {
+        String id = tag.getAttributeValue("id");
+        XmlTag rootTag = tag.getParentTag();
+        if (null == id || null == rootTag || null != rootTag.getParentTag()) {
+            return null;
+        }
+        String qualified = qualify(getNamespace(rootTag), id);
+        if ("sql".equals(tag.getName())) {
+            return SQL + qualified;
+        }
+        if ("resultMap".equals(tag.getName())) {
+            return RESULT_MAP + qualified;
+        }
+        return STATEMENT_TAGS.contains(tag.getName()) ? STATEMENT + qualified : null;
+    }
+
+    @Nullable
+    private static String getIncludeKey(XmlTag include) {
+        String refid = include.getAttributeValue("refid");
+        if (null == refid || refid.contains("${")) {
+            return null;
+        }
+        return SQL + qualify(getNamespace(include), refid);
+    }
+
+    @Nullable
+    private static XmlTag getOwnerTag(XmlTag tag) {
+        XmlTag owner = tag;
+        while (null != owner.getParentTag() && null != owner.getParentTag().getParentTag()) {
+            owner = owner.getParentTag();
+        }
+        return owner == tag ? null : owner;
+    }
+
+    private static String getNamespace(XmlTag tag) {
+        XmlFile file = (XmlFile) tag.getContainingFile();
+        XmlTag rootTag = null == file ? null : file.getRootTag();
+        String namespace = null == rootTag ? null : rootTag.getAttributeValue("namespace");
+        return null == namespace ? "" : namespace.trim();
+    }
+
+    private static String qualify(String namespace, String id) {
+        String trimmed = id.trim();
+        return trimmed.contains(MybatisConstants.DOT_SEPARATOR) ? trimmed : namespace + MybatisConstants.DOT_SEPARATOR + trimmed;
+    }
+
+    /**
+     * @return the node key shown to users, without its kind prefix
+     */
+    @NotNull
+    public static String getDisplayName(@NotNull String key) {
+        return key.substring(key.indexOf(':') + 1);
+    }
+
+    @Override
+    public void dispose() {
+        snapshot.set(null);
+    }
+
+    /**
+     * The graph at one point in time. A snapshot is only modified while it is built, before it is published; its
+     * memos are concurrent and start as a copy of those of the snapshot it replaces.
+     */
+    private static class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot();
+
+        private final Map<VirtualFile, FileNodes> files;
+
+        private final Map<String, Node> nodes;
+
+        private final Map<String, Set<String>> dependents;
+
+        private final Map<String, String> expansions;
+
+        private final Map<String, Integer> depths;
+
+        private Snapshot() {
+            this.files = Maps.newHashMap();
+            this.nodes = Maps.newHashMap();
+            this.dependents = Maps.newHashMap();
+            this.expansions = new ConcurrentHashMap<>();
+            this.depths = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * The dependent sets are shared with the previous snapshot and replaced, never modified, when they change.
+         */
+        private Snapshot(Snapshot previous) {
+            this.files = Maps.newHashMap(previous.files);
+            this.nodes = Maps.newHashMap(previous.nodes);
+            this.dependents = Maps.newHashMap(previous.dependents);
+            this.expansions = new ConcurrentHashMap<>(previous.expansions);
+            this.depths = new ConcurrentHashMap<>(previous.depths);
+        }
+    }
+
+    private static class FileNodes {
+
+        private final long stamp;
+
+        private final Map<String, Node> nodes = Maps.newLinkedHashMap();
+
+        private FileNodes(long stamp) {
+            this.stamp = stamp;
+        }
+
+        private void add(Node node) {
+            nodes.put(node.key, node);
+        }
+    }
+
+    /**
+     * Keeps a smart pointer to its tag, so the graph neither pins the psi of every mapper nor hands out tags of a
+     * file that was reparsed since.
+     */
+    private static class Node {
+
+        private final String key;
+
+        private final SmartPsiElementPointer<XmlTag> tag;
+
+        private final List<String> dependencies;
+
+        private final int textHash;
+
+        private Node(String key, XmlTag tag, List<String> dependencies) {
+            this.key = key;
+            this.tag = SmartPointerManager.createPointer(tag);
+            this.dependencies = dependencies;
+            this.textHash = tag.getText().hashCode();
+        }
+
+        /**
+         * @return the tag, null if it no longer exists
+         */
+        @Nullable
+        private XmlTag getTag() {
+            XmlTag element = tag.getElement();
+            return null != element && element.isValid() ? element : null;
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.tianlei.mybatis.service;
 
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.source.PsiClassReferenceType;
@@ -54,6 +55,7 @@ public class JavaService {
         String id = psiClass.getQualifiedName() + "." + psiMethod.getName();
         String clazzModule = psiClass.getResolveScope().getDisplayName();
         for (Mapper mapper : MapperUtils.findMappers(psiMethod.getProject())) {
+            ProgressManager.checkCanceled();
             String mapperModule = mapper.getModule().getModuleScope().getDisplayName();
             for (IdDomElement idDomElement : mapper.getDaoElements()) {
                 if (clazzModule.equals(mapperModule) && MapperUtils.getIdSignature(idDomElement).equals(id)) {
@@ -66,10 +68,12 @@ public class JavaService {
     @SuppressWarnings("unchecked")
     public void process(@NotNull PsiClass clazz, @NotNull Processor<Mapper> processor) {
         String ns = clazz.getQualifiedName();
+        if (null == ns) return;
         String clazzModule = clazz.getResolveScope().getDisplayName();
-        for (Mapper mapper : MapperUtils.findMappers(clazz.getProject())) {
+        for (Mapper mapper : MapperUtils.findMappers(clazz.getProject(), ns)) {
+            ProgressManager.checkCanceled();
             String mapperModule = mapper.getModule().getModuleScope().getDisplayName();
-            if (clazzModule.equals(mapperModule) && MapperUtils.getNamespace(mapper).equals(ns)) {
+            if (clazzModule.equals(mapperModule)) {
                 processor.process(mapper);
             }
         }
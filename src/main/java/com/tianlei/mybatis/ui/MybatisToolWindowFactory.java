@@ -0,0 +1,53 @@
+package com.tianlei.mybatis.ui;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+/**
+ * The MyBatis tool window only holds report tabs opened by project-wide actions.
+ */
+public class MybatisToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    public static final String ID = "MyBatis";
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+    }
+
+    /**
+     * Opens a new report tab and activates the tool window, must be called on the event dispatch thread.
+     */
+    @NotNull
+    public static ReportPanel openReport(@NotNull Project project, @NotNull String title) {
+        ReportPanel panel = new ReportPanel();
+        openTab(project, title, panel);
+        return panel;
+    }
+
+    /**
+     * Adds the component as a new selected tab and activates the tool window, must be called on the event dispatch
+     * thread.
+     */
+    public static void openTab(@NotNull Project project, @NotNull String title, @NotNull JComponent component) {
+        ToolWindow toolWindow = ToolWindowManager.getInstance(project).getToolWindow(ID);
+        if (null != toolWindow) {
+            Content content = ContentFactory.getInstance().createContent(component, title, false);
+            if (component instanceof Disposable) {
+                content.setDisposer((Disposable) component);
+            }
+            toolWindow.getContentManager().addContent(content);
+            toolWindow.getContentManager().setSelectedContent(content);
+            toolWindow.activate(null);
+        }
+    }
+
+}
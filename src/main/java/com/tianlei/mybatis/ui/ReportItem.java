@@ -0,0 +1,90 @@
+package com.tianlei.mybatis.ui;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.util.PsiNavigateUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One finding of a project report, the location text is computed when the item is created so the tool window
+ * never needs a read action to render it.
+ */
+public class ReportItem {
+
+    private final String category;
+
+    private final String message;
+
+    private final String location;
+
+    private final SmartPsiElementPointer<PsiElement> pointer;
+
+    private ReportItem(@NotNull String category, @NotNull String message, @NotNull String location,
+                       @NotNull SmartPsiElementPointer<PsiElement> pointer) {
+        this.category = category;
+        this.message = message;
+        this.location = location;
+        this.pointer = pointer;
+    }
+
+    /**
+     * Must be called inside a read action.
+     */
+    @NotNull
+    public static ReportItem create(@NotNull String category, @NotNull String message, @NotNull PsiElement element) {
+        PsiFile file = element.getContainingFile();
+        String location = null == file ? "" : file.getName();
+        Document document = null == file ? null : PsiDocumentManager.getInstance(file.getProject()).getDocument(file);
+        if (null != document) {
+            location += ":" + (document.getLineNumber(element.getTextOffset()) + 1);
+        }
+        return new ReportItem(category, message, location,
+                SmartPointerManager.getInstance(element.getProject()).createSmartPsiElementPointer(element));
+    }
+
+    /**
+     * @return a copy of this item filed under another category
+     */
+    @NotNull
+    public ReportItem inCategory(@NotNull String category) {
+        return new ReportItem(category, message, location, pointer);
+    }
+
+    @NotNull
+    public String getCategory() {
+        return category;
+    }
+
+    @NotNull
+    public String getMessage() {
+        return message;
+    }
+
+    @NotNull
+    public String getLocation() {
+        return location;
+    }
+
+    @Nullable
+    public PsiElement getElement() {
+        return pointer.getElement();
+    }
+
+    public void navigate() {
+        PsiElement element = getElement();
+        if (null != element) {
+            PsiNavigateUtil.navigate(element);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+
+}
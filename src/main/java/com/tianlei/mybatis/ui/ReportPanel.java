@@ -0,0 +1,160 @@
+package com.tianlei.mybatis.ui;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.ui.ColoredTreeCellRenderer;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Report tab of the MyBatis tool window, items are grouped by category and may be added from any thread while the
+ * producing task is still running.
+ */
+public class ReportPanel extends SimpleToolWindowPanel {
+
+    private final DefaultMutableTreeNode root = new DefaultMutableTreeNode();
+
+    private final DefaultTreeModel model = new DefaultTreeModel(root);
+
+    private final Tree tree = new Tree(model);
+
+    private final JBLabel status = new JBLabel();
+
+    private final Map<String, DefaultMutableTreeNode> categories = Maps.newLinkedHashMap();
+
+    private int count;
+
+    public ReportPanel() {
+        super(true, true);
+        tree.setRootVisible(false);
+        tree.setShowsRootHandles(true);
+        tree.setCellRenderer(new ReportCellRenderer());
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                ReportItem item = getSelectedItem();
+                if (null != item) {
+                    item.navigate();
+                    return true;
+                }
+                return false;
+            }
+        }.installOn(tree);
+        status.setBorder(JBUI.Borders.empty(2, 6));
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(ScrollPaneFactory.createScrollPane(tree), BorderLayout.CENTER);
+        content.add(status, BorderLayout.SOUTH);
+        setContent(content);
+    }
+
+    public void addItems(@NotNull Collection<ReportItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            for (ReportItem item : items) {
+                DefaultMutableTreeNode category = categories.get(item.getCategory());
+                if (null == category) {
+                    category = new DefaultMutableTreeNode(item.getCategory());
+                    categories.put(item.getCategory(), category);
+                    model.insertNodeInto(category, root, root.getChildCount());
+                    tree.expandPath(new TreePath(root));
+                }
+                model.insertNodeInto(new DefaultMutableTreeNode(item, false), category, category.getChildCount());
+                count++;
+            }
+        });
+    }
+
+    public void setToolbarActions(@NotNull AnAction... actions) {
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("MybatisReport", new DefaultActionGroup(actions), false);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+    }
+
+    /**
+     * @return every item added so far, must be called on the event dispatch thread
+     */
+    @NotNull
+    public List<ReportItem> getItems() {
+        List<ReportItem> result = Lists.newArrayList();
+        for (DefaultMutableTreeNode category : categories.values()) {
+            addChildItems(category, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the items of the selected category, or of the category of the selected item
+     */
+    @NotNull
+    public List<ReportItem> getSelectedGroup() {
+        Object node = tree.getLastSelectedPathComponent();
+        if (node instanceof DefaultMutableTreeNode && ((DefaultMutableTreeNode) node).getUserObject() instanceof ReportItem) {
+            node = ((DefaultMutableTreeNode) node).getParent();
+        }
+        List<ReportItem> result = Lists.newArrayList();
+        if (node instanceof DefaultMutableTreeNode && categories.containsValue(node)) {
+            addChildItems((DefaultMutableTreeNode) node, result);
+        }
+        return result;
+    }
+
+    private static void addChildItems(DefaultMutableTreeNode category, List<ReportItem> result) {
+        for (int i = 0; i < category.getChildCount(); i++) {
+            result.add((ReportItem) ((DefaultMutableTreeNode) category.getChildAt(i)).getUserObject());
+        }
+    }
+
+    public void setStatus(@NotNull String text) {
+        ApplicationManager.getApplication().invokeLater(() -> status.setText(text.replace("{count}", String.valueOf(count))));
+    }
+
+    public ReportItem getSelectedItem() {
+        Object node = tree.getLastSelectedPathComponent();
+        if (node instanceof DefaultMutableTreeNode && ((DefaultMutableTreeNode) node).getUserObject() instanceof ReportItem) {
+            return (ReportItem) ((DefaultMutableTreeNode) node).getUserObject();
+        }
+        return null;
+    }
+
+    private static class ReportCellRenderer extends ColoredTreeCellRenderer {
+
+        @Override
+        public void customizeCellRenderer(@NotNull JTree tree, Object value, boolean selected, boolean expanded,
+                                          boolean leaf, int row, boolean hasFocus) {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
+            Object userObject = node.getUserObject();
+            if (userObject instanceof ReportItem) {
+                ReportItem item = (ReportItem) userObject;
+                append(item.getMessage());
+                append("  " + item.getLocation(), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            } else if (null != userObject) {
+                append(userObject.toString(), SimpleTextAttributes.REGULAR_BOLD_ATTRIBUTES);
+                append("  " + node.getChildCount(), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.tianlei.mybatis.ui;
+
+import com.google.gson.JsonParseException;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.JBUI;
+import com.tianlei.mybatis.analysis.DynamicSqlRenderer;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+
+/**
+ * Preview tab of the MyBatis tool window for one statement: the sql with includes expanded, or the sql the dynamic
+ * tags build for a sample parameter given as json.
+ */
+public class SqlPreviewPanel extends SimpleToolWindowPanel {
+
+    private final SmartPsiElementPointer<XmlTag> statement;
+
+    private final JBTextArea parameter = new JBTextArea(4, 40);
+
+    private final JBTextArea output = new JBTextArea();
+
+    /**
+     * Must be called in a read action.
+     */
+    public SqlPreviewPanel(@NotNull XmlTag statement) {
+        super(true, true);
+        this.statement = SmartPointerManager.createPointer(statement);
+        parameter.setFont(JBUI.Fonts.create(Font.MONOSPACED, JBUI.Fonts.label().getSize()));
+        parameter.setText("{}");
+        output.setFont(parameter.getFont());
+        output.setEditable(false);
+        output.setText("-- Expanding includes...");
+
+        JBSplitter splitter = new JBSplitter(true, 0.2f);
+        splitter.setFirstComponent(ScrollPaneFactory.createScrollPane(parameter));
+        splitter.setSecondComponent(ScrollPaneFactory.createScrollPane(output));
+        setContent(splitter);
+
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(DumbAwareAction.create("Render with Parameter", AllIcons.Actions.Execute, event -> render()));
+        group.add(DumbAwareAction.create("Show Expanded Sql", AllIcons.Actions.Refresh, event -> renderStatic()));
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("MybatisSqlPreview", group, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+        renderStatic();
+    }
+
+    private void render() {
+        String json = parameter.getText();
+        ReadAction.nonBlocking(() -> {
+                    XmlTag tag = statement.getElement();
+                    if (null == tag) {
+                        return "The statement no longer exists.";
+                    }
+                    try {
+                        return DynamicSqlRenderer.render(tag, json);
+                    } catch (IllegalArgumentException | JsonParseException e) {
+                        return "-- " + e.getMessage();
+                    }
+                })
+                .finishOnUiThread(ModalityState.defaultModalityState(), output::setText)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private void renderStatic() {
+        ReadAction.nonBlocking(() -> {
+                    XmlTag tag = statement.getElement();
+                    return null == tag ? "The statement no longer exists." : DynamicSqlRenderer.renderStatic(tag);
+                })
+                .finishOnUiThread(ModalityState.defaultModalityState(), output::setText)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+}
@@ -1,20 +1,32 @@
 package com.tianlei.mybatis.util;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.intellij.database.model.DasColumn;
+import com.intellij.database.model.DasIndex;
+import com.intellij.database.model.DasTable;
 import com.intellij.database.model.DasTableKey;
 import com.intellij.database.model.DasTypedObject;
 import com.intellij.database.model.MultiRef;
+import com.intellij.database.psi.DbDataSource;
+import com.intellij.database.psi.DbPsiFacade;
 import com.intellij.database.psi.DbTable;
 import com.intellij.database.util.DasUtil;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.containers.JBIterable;
 import com.rits.cloning.Cloner;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.mybatis.generator.api.intellij.IntellijColumnInfo;
 import org.mybatis.generator.api.intellij.IntellijTableInfo;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class DbToolsUtils {
     private static final Cloner myCloner = new Cloner();
@@ -59,6 +71,94 @@ public class DbToolsUtils {
     }
 
 
+    /**
+     * Looks a table up by name in the data sources of the project, ignoring case, quotes and any schema qualifier.
+     * The lookup is cached until the next psi or data source change.
+     */
+    @Nullable
+    public static DasTable findTable(@NotNull Project project, @NotNull String name) {
+        String key = StringUtil.unquoteString(StringUtil.unquoteString(StringUtil.substringAfterLast("." + name.trim(), "."), '`'))
+                .toLowerCase();
+        return CachedValuesManager.getManager(project).getCachedValue(project, () -> {
+            Map<String, DasTable> tables = Maps.newHashMap();
+            for (DbDataSource dataSource : DbPsiFacade.getInstance(project).getDataSources()) {
+                for (DasTable table : DasUtil.getTables(dataSource)) {
+                    tables.putIfAbsent(table.getName().toLowerCase(), table);
+                }
+            }
+            return CachedValueProvider.Result.create(tables, PsiModificationTracker.getInstance(project),
+                    DbPsiFacade.getInstance(project).getModificationTracker());
+        }).get(key);
+    }
+
+    /**
+     * Finds the table of a column among the tables of a statement, by qualifier when there is one.
+     *
+     * @param aliases the tables of the statement by lower cased alias, see {@link SqlTextUtils#getTableAliases}
+     */
+    @Nullable
+    public static DasTable findColumnTable(@NotNull Project project, @NotNull Map<String, String> aliases,
+                                           @Nullable String qualifier, @NotNull String column) {
+        if (null != qualifier) {
+            String table = aliases.get(qualifier.toLowerCase());
+            return null == table ? null : findTable(project, table);
+        }
+        for (String table : Sets.newLinkedHashSet(aliases.values())) {
+            DasTable dasTable = findTable(project, table);
+            if (null != dasTable && null != findColumn(dasTable, column)) {
+                return dasTable;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    public static DasColumn findColumn(@NotNull DasTable table, @NotNull String name) {
+        String unquoted = StringUtil.unquoteString(StringUtil.unquoteString(name.trim(), '`'));
+        for (DasColumn column : DasUtil.getColumns(table)) {
+            if (column.getName().equalsIgnoreCase(unquoted)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the column leads an index or a key of the table, so a predicate on it alone can seek
+     */
+    public static boolean isIndexed(@NotNull DasTable table, @NotNull String column) {
+        String unquoted = StringUtil.unquoteString(StringUtil.unquoteString(column.trim(), '`'));
+        for (DasIndex index : DasUtil.getIndices(table)) {
+            if (isLeadingColumn(index.getColumnsRef(), unquoted)) {
+                return true;
+            }
+        }
+        for (DasTableKey key : DasUtil.getTableKeys(table)) {
+            if (isLeadingColumn(key.getColumnsRef(), unquoted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the column names of an index or key, in index order
+     */
+    @NotNull
+    public static List<String> getColumnNames(@NotNull MultiRef<? extends DasTypedObject> columnsRef) {
+        List<String> result = new ArrayList<>();
+        MultiRef.It<? extends DasTypedObject> iterate = columnsRef.iterate();
+        while (iterate.hasNext()) {
+            result.add(iterate.next());
+        }
+        return result;
+    }
+
+    private static boolean isLeadingColumn(MultiRef<? extends DasTypedObject> columnsRef, String column) {
+        MultiRef.It<? extends DasTypedObject> iterate = columnsRef.iterate();
+        return iterate.hasNext() && column.equalsIgnoreCase(iterate.next());
+    }
+
     private static String extractDatabaseTypeFromUrl(DbTable currentTable) {
         String url = currentTable.getDataSource().getConnectionConfig().getUrl();
         return extractDatabaseTypeFromUrl(url);
@@ -2,6 +2,7 @@ package com.tianlei.mybatis.util;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.GlobalSearchScope;
@@ -31,6 +32,7 @@ public final class DomUtils {
         return Collections2.transform(elements, new Function<DomFileElement<T>, T>() {
             @Override
             public T apply(DomFileElement<T> input) {
+                ProgressManager.checkCanceled();
                 return input.getRootElement();
             }
         });
@@ -4,7 +4,10 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PropertyUtil;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.tianlei.mybatis.annotation.Annotation;
 import com.tianlei.mybatis.dom.model.IdDomElement;
@@ -62,6 +65,20 @@ public final class JavaUtils {
         return Optional.ofNullable(type).isPresent() && type.isInterface();
     }
 
+    /**
+     * @return the names of every method of the class and its supers, cached until the next psi change
+     */
+    @NotNull
+    public static Set<String> getMethodNames(@NotNull PsiClass clazz) {
+        return CachedValuesManager.getCachedValue(clazz, () -> {
+            Set<String> names = new HashSet<>();
+            for (PsiMethod method : clazz.getAllMethods()) {
+                names.add(method.getName());
+            }
+            return CachedValueProvider.Result.create(names, PsiModificationTracker.getInstance(clazz.getProject()));
+        });
+    }
+
     @NotNull
     public static Optional<PsiClass> findClazz(@NotNull Project project, @NotNull String clazzName) {
         return Optional.ofNullable(JavaPsiFacade.getInstance(project).findClass(clazzName, GlobalSearchScope.allScope(project)));
@@ -1,19 +1,27 @@
 package com.tianlei.mybatis.util;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
 import com.intellij.ide.fileTemplates.FileTemplate;
 import com.intellij.ide.fileTemplates.FileTemplateManager;
 import com.intellij.ide.fileTemplates.FileTemplateUtil;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.xml.XmlElement;
+import com.intellij.psi.xml.XmlFile;
 import com.intellij.util.Processor;
 import com.intellij.util.xml.DomElement;
+import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomManager;
 import com.intellij.util.xml.DomUtil;
 import com.tianlei.mybatis.dom.model.*;
 import com.tianlei.mybatis.dom.model.Package;
+import com.tianlei.mybatis.index.MapperNamespaceIndex;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -47,13 +55,21 @@ public final class MapperUtils {
         return FileTemplateUtil.createFromTemplate(fileTemplate, fileName, pops, directory);
     }
 
+    /**
+     * @return the distinct directories holding mapper xml files, cached until the next psi change
+     */
     @NotNull
     public static Collection<PsiDirectory> findMapperDirectories(@NotNull Project project) {
-        return Collections2.transform(findMappers(project), new Function<Mapper, PsiDirectory>() {
-            @Override
-            public PsiDirectory apply(Mapper input) {
-                return input.getXmlElement().getContainingFile().getContainingDirectory();
+        return CachedValuesManager.getManager(project).getCachedValue(project, () -> {
+            Set<PsiDirectory> result = new LinkedHashSet<>();
+            for (Mapper mapper : findMappers(project)) {
+                ProgressManager.checkCanceled();
+                PsiDirectory directory = mapper.getXmlElement().getContainingFile().getContainingDirectory();
+                if (null != directory) {
+                    result.add(directory);
+                }
             }
+            return CachedValueProvider.Result.create(Collections.unmodifiableSet(result), PsiModificationTracker.getInstance(project));
         });
     }
 
@@ -72,9 +88,23 @@ public final class MapperUtils {
     @NonNls
     public static Collection<Mapper> findMappers(@NotNull Project project, @NotNull String namespace) {
         List<Mapper> result = Lists.newArrayList();
-        for (Mapper mapper : findMappers(project)) {
-            if (getNamespace(mapper).equals(namespace)) {
-                result.add(mapper);
+        if (DumbService.isDumb(project)) {
+            for (Mapper mapper : findMappers(project)) {
+                ProgressManager.checkCanceled();
+                if (getNamespace(mapper).equals(namespace)) {
+                    result.add(mapper);
+                }
+            }
+            return result;
+        }
+        PsiManager psiManager = PsiManager.getInstance(project);
+        DomManager domManager = DomManager.getDomManager(project);
+        for (VirtualFile file : MapperNamespaceIndex.findMapperFiles(project, namespace)) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = psiManager.findFile(file);
+            DomFileElement<Mapper> fileElement = psiFile instanceof XmlFile ? domManager.getFileElement((XmlFile) psiFile, Mapper.class) : null;
+            if (null != fileElement && getNamespace(fileElement.getRootElement()).equals(namespace)) {
+                result.add(fileElement.getRootElement());
             }
         }
         return result;
@@ -169,6 +199,7 @@ public final class MapperUtils {
 
     public static void processConfiguredTypeAliases(@NotNull Project project, @NotNull Processor<TypeAlias> processor) {
         for (Configuration conf : getMybatisConfigurations(project)) {
+            ProgressManager.checkCanceled();
             for (TypeAliases tas : conf.getTypeAliases()) {
                 for (TypeAlias ta : tas.getTypeAlias()) {
                     String stringValue = ta.getAlias().getStringValue();
@@ -187,6 +218,7 @@ public final class MapperUtils {
     public static void processConfiguredPackage(@NotNull Project project,
                                                 @NotNull Processor<Package> processor) {
         for (Configuration conf : getMybatisConfigurations(project)) {
+            ProgressManager.checkCanceled();
             for (TypeAliases tas : conf.getTypeAliases()) {
                 for (Package pkg : tas.getPackages()) {
                     if (!processor.process(pkg)) {
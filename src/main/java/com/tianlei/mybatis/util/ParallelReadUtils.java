@@ -0,0 +1,53 @@
+package com.tianlei.mybatis.util;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.concurrency.CancellablePromise;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public final class ParallelReadUtils {
+
+    private ParallelReadUtils() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Applies the function to every unit in non-blocking smart mode read actions, on a pool bounded by the number
+     * of cores. A read action may be restarted by a write action, so the function must have no side effect. Each
+     * result is handed to the consumer on the calling thread once its read action has completed, in the order of
+     * the units; the call returns once every result is delivered and throws if the indicator is cancelled.
+     */
+    public static <T, R> void process(@NotNull Project project,
+                                      @NotNull ProgressIndicator indicator,
+                                      @NotNull String name,
+                                      @NotNull List<T> units,
+                                      @NotNull Function<? super T, ? extends R> function,
+                                      @NotNull Consumer<? super R> consumer) {
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(name, Runtime.getRuntime().availableProcessors());
+        try {
+            List<CancellablePromise<R>> promises = Lists.newArrayListWithCapacity(units.size());
+            for (T unit : units) {
+                promises.add(ReadAction.<R>nonBlocking(() -> function.apply(unit))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .submit(executor));
+            }
+            for (int i = 0; i < promises.size(); i++) {
+                indicator.setFraction((double) i / promises.size());
+                consumer.accept(ProgressIndicatorUtils.awaitWithCheckCanceled(promises.get(i)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.tianlei.mybatis.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.psi.xml.XmlTagChild;
+import com.intellij.psi.xml.XmlText;
+import com.tianlei.mybatis.service.IncludeGraph;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class SqlTextUtils {
+
+    private static final Pattern PARAMETER = Pattern.compile("#\\{[^}]*}");
+
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]*)}");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern PUNCTUATION = Pattern.compile("\\s*([(),=<>!+*/-])\\s*");
+
+    private static final Pattern TABLE = Pattern.compile(
+            "(?i)\\b(?:from|join|update|into)\\s+([\\w.`\"]+)(?:\\s+(?:as\\s+)?([a-z_]\\w*))?");
+
+    private static final Set<String> KEYWORDS = ImmutableSet.of("where", "set", "on", "join", "left", "right", "inner",
+            "outer", "cross", "full", "natural", "group", "order", "limit", "values", "select", "union", "having", "using");
+
+    private SqlTextUtils() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Renders the body of a statement or fragment with every resolvable include expanded in place. Dynamic tags are
+     * kept with their attributes sorted, so two bodies only render the same if they build the same sql. Expansions
+     * are memoized by the {@link IncludeGraph}.
+     */
+    @NotNull
+    public static String getExpandedBody(@NotNull XmlTag tag) {
+        return IncludeGraph.getInstance(tag.getProject()).getExpansion(tag);
+    }
+
+    /**
+     * Renders one tag body, the included fragments are taken from the {@link IncludeGraph} and an include that can
+     * not be expanded is kept as a tag.
+     */
+    @NotNull
+    public static String renderBody(@NotNull XmlTag tag) {
+        StringBuilder builder = new StringBuilder();
+        appendBody(tag, builder, IncludeGraph.getInstance(tag.getProject()));
+        return builder.toString();
+    }
+
+    private static void appendBody(XmlTag tag, StringBuilder builder, IncludeGraph graph) {
+        for (XmlTagChild child : tag.getValue().getChildren()) {
+            if (child instanceof XmlText) {
+                builder.append(((XmlText) child).getValue());
+            } else if (child instanceof XmlTag) {
+                XmlTag childTag = (XmlTag) child;
+                String expansion = "include".equals(childTag.getName()) ? graph.getIncludeExpansion(childTag) : null;
+                if (null != expansion) {
+                    builder.append(' ').append(replaceProperties(expansion, getIncludeProperties(childTag))).append(' ');
+                } else {
+                    appendTag(childTag, builder, graph);
+                }
+            }
+        }
+    }
+
+    private static void appendTag(XmlTag tag, StringBuilder builder, IncludeGraph graph) {
+        builder.append('<').append(tag.getName());
+        XmlAttribute[] attributes = tag.getAttributes().clone();
+        Arrays.sort(attributes, Comparator.comparing(XmlAttribute::getName));
+        for (XmlAttribute attribute : attributes) {
+            builder.append(' ').append(attribute.getName()).append("=\"").append(attribute.getValue()).append('"');
+        }
+        builder.append('>');
+        appendBody(tag, builder, graph);
+        builder.append("</").append(tag.getName()).append('>');
+    }
+
+    /**
+     * @return the {@code <property>} values given to an include, by name
+     */
+    @NotNull
+    public static Map<String, String> getIncludeProperties(@NotNull XmlTag include) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (XmlTag property : include.findSubTags("property")) {
+            String name = property.getAttributeValue("name");
+            if (null != name) {
+                result.put(name.trim(), StringUtil.notNullize(property.getAttributeValue("value")));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the {@code ${name}} placeholders whose name is one of the properties, the others are kept.
+     */
+    @NotNull
+    public static String replaceProperties(@NotNull String text, @NotNull Map<String, String> properties) {
+        if (properties.isEmpty() || !text.contains("${")) {
+            return text;
+        }
+        Matcher matcher = PROPERTY.matcher(text);
+        StringBuilder builder = new StringBuilder();
+        while (matcher.find()) {
+            String value = properties.get(matcher.group(1).trim());
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(null == value ? matcher.group() : value));
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Makes equivalent sql texts equal: keywords and identifiers are lower cased outside of string literals and
+     * parameter placeholders, whitespace is collapsed and dropped around punctuation. Placeholders keep their
+     * expression with whitespace removed, as two statements binding different properties are not equivalent.
+     */
+    @NotNull
+    public static String normalize(@NotNull String sql) {
+        StringBuilder builder = new StringBuilder(sql.length());
+        Matcher matcher = PARAMETER.matcher(sql);
+        int start = 0;
+        while (matcher.find()) {
+            appendLowerCase(sql.substring(start, matcher.start()), builder);
+            builder.append(WHITESPACE.matcher(matcher.group()).replaceAll(""));
+            start = matcher.end();
+        }
+        appendLowerCase(sql.substring(start), builder);
+        String text = WHITESPACE.matcher(builder).replaceAll(" ").trim();
+        text = PUNCTUATION.matcher(text).replaceAll("$1");
+        while (text.endsWith(";")) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        return text;
+    }
+
+    /**
+     * Lower cases the text outside of string literals, a literal may span several calls.
+     */
+    private static void appendLowerCase(String text, StringBuilder builder) {
+        boolean quoted = 1 == StringUtil.countChars(builder, '\'') % 2;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ('\'' == c) {
+                quoted = !quoted;
+            }
+            builder.append(quoted ? c : Character.toLowerCase(c));
+        }
+    }
+
+    /**
+     * @return the tables named after {@code from}, {@code join}, {@code update} and {@code into}, by lower cased alias
+     * and by lower cased unqualified name
+     */
+    @NotNull
+    public static Map<String, String> getTableAliases(@NotNull String sql) {
+        Map<String, String> result = new LinkedHashMap<>();
+        Matcher matcher = TABLE.matcher(sql);
+        while (matcher.find()) {
+            String table = matcher.group(1);
+            if (KEYWORDS.contains(table.toLowerCase())) {
+                continue;
+            }
+            result.putIfAbsent(StringUtil.unquoteString(StringUtil.unquoteString(
+                    StringUtil.substringAfterLast("." + table, "."), '`')).toLowerCase(), table);
+            String alias = matcher.group(2);
+            if (null != alias && !KEYWORDS.contains(alias.toLowerCase())) {
+                result.putIfAbsent(alias.toLowerCase(), table);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    public static String hash(@NotNull String text) {
+        return Hashing.murmur3_128().hashString(text, StandardCharsets.UTF_8).toString();
+    }
+
+}
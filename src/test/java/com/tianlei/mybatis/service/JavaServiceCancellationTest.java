@@ -0,0 +1,93 @@
+package com.tianlei.mybatis.service;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.tianlei.mybatis.dom.model.Mapper;
+import com.tianlei.mybatis.util.MapperUtils;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that the project-wide mapper traversals stop soon after their progress indicator is canceled, on a
+ * synthetic project with {@value #MAPPER_COUNT} mapper files.
+ */
+public class JavaServiceCancellationTest extends BasePlatformTestCase {
+
+    private static final int MAPPER_COUNT = 5000;
+
+    private static final long CANCEL_DELAY_MILLIS = 200;
+
+    private static final long MAX_LATENCY_MILLIS = 500;
+
+    private PsiMethod method;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        PsiClass clazz = myFixture.addClass("package com.example;\n"
+                + "public interface UserMapper {\n"
+                + "    Object findById(long id);\n"
+                + "}");
+        method = clazz.getMethods()[0];
+        for (int i = 0; i < MAPPER_COUNT; i++) {
+            myFixture.addFileToProject("mappers/Mapper" + i + ".xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+                    + "<mapper namespace=\"com.example.Mapper" + i + "\">\n"
+                    + "    <select id=\"findById\" resultType=\"java.lang.Object\">select * from t" + i + " where id = #{id}</select>\n"
+                    + "</mapper>");
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        method = null;
+        super.tearDown();
+    }
+
+    public void testProcessMethodStopsSoonAfterCancel() {
+        assertCanceledInTime(() -> JavaService.getInstance(getProject()).process(method, element -> true));
+    }
+
+    public void testFindMappersStopsSoonAfterCancel() {
+        assertCanceledInTime(() -> {
+            for (Mapper mapper : MapperUtils.findMappers(getProject())) {
+                MapperUtils.getNamespace(mapper);
+            }
+        });
+    }
+
+    /**
+     * Runs the traversal over and over under an indicator canceled after a delay, and checks how long the
+     * traversal kept running once the indicator was canceled.
+     */
+    private void assertCanceledInTime(Runnable traversal) {
+        EmptyProgressIndicator indicator = new EmptyProgressIndicator();
+        AtomicLong canceledAt = new AtomicLong();
+        ScheduledFuture<?> cancel = AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            canceledAt.set(System.nanoTime());
+            indicator.cancel();
+        }, CANCEL_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            ProgressManager.getInstance().runProcess(() -> {
+                while (true) {
+                    traversal.run();
+                }
+            }, indicator);
+            fail("The traversal was not canceled");
+        } catch (ProcessCanceledException e) {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - canceledAt.get());
+            assertTrue("Canceled after " + latency + " ms, expected at most " + MAX_LATENCY_MILLIS + " ms",
+                    latency <= MAX_LATENCY_MILLIS);
+        } finally {
+            cancel.cancel(false);
+        }
+    }
+
+}